@@ -16,7 +16,6 @@
 
 package net.kodehawa.mantarobot;
 
-import br.com.brjdevs.java.utils.async.Async;
 import com.github.natanbc.discordbotsapi.DiscordBotsAPI;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
@@ -27,6 +26,7 @@ import net.kodehawa.mantarobot.commands.moderation.MuteTask;
 import net.kodehawa.mantarobot.commands.music.MantaroAudioManager;
 import net.kodehawa.mantarobot.commands.utils.birthday.BirthdayCacher;
 import net.kodehawa.mantarobot.core.MantaroCore;
+import net.kodehawa.mantarobot.core.MantaroExecutors;
 import net.kodehawa.mantarobot.core.processor.DefaultCommandProcessor;
 import net.kodehawa.mantarobot.core.shard.MantaroShard;
 import net.kodehawa.mantarobot.core.shard.ShardedMantaro;
@@ -53,8 +53,6 @@ import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import static net.kodehawa.mantarobot.utils.ShutdownCodes.*;
@@ -73,8 +71,6 @@ public class MantaroBot extends ShardedJDA {
     private final ShardedMantaro shardedMantaro;
     @Getter
     private BirthdayCacher birthdayCacher;
-    @Getter
-    private ScheduledExecutorService executorService = Executors.newScheduledThreadPool(3);
 
     //just in case
     static {
@@ -125,7 +121,7 @@ public class MantaroBot extends ShardedJDA {
                 .startMainComponents(false);
 
         shardedMantaro = core.getShardedInstance();
-        audioManager = new MantaroAudioManager();
+        audioManager = new MantaroAudioManager(shardedMantaro.getTotalShards());
         Items.setItemActions();
 
         long end = System.currentTimeMillis();
@@ -139,7 +135,7 @@ public class MantaroBot extends ShardedJDA {
 
         birthdayCacher = new BirthdayCacher();
         final MuteTask muteTask = new MuteTask();
-        Async.task("Mute Handler", muteTask::handle, 1, TimeUnit.MINUTES);
+        MantaroExecutors.timer().scheduleAtFixedRate(() -> MantaroExecutors.common().execute(muteTask::handle), 0, 1, TimeUnit.MINUTES);
     }
 
     public static void main(String[] args) {
@@ -203,9 +199,6 @@ public class MantaroBot extends ShardedJDA {
     }
 
     public void startCheckingBirthdays() {
-        ScheduledExecutorService executorService = Executors.newScheduledThreadPool(2);
-        Prometheus.THREAD_POOL_COLLECTOR.add("birthday-tracker", executorService);
-
         //How much until tomorrow? That's the initial delay, then run it once a day.
         ZoneId z = ZoneId.of("America/Chicago");
         ZonedDateTime now = ZonedDateTime.now(z);
@@ -221,8 +214,8 @@ public class MantaroBot extends ShardedJDA {
             shard.startBirthdayTask(millisecondsUntilTomorrow);
         }
 
-        //Start the birthday cacher.
-        executorService.scheduleWithFixedDelay(birthdayCacher::cache, 22, 23, TimeUnit.HOURS);
+        //Start the birthday cacher. This only submits the work to the cacher's own pool.
+        MantaroExecutors.timer().scheduleWithFixedDelay(birthdayCacher::cache, 22, 23, TimeUnit.HOURS);
     }
 
     @Override
@@ -26,6 +26,7 @@ import net.dv8tion.jda.core.entities.User;
 import net.dv8tion.jda.core.events.message.guild.GuildMessageReceivedEvent;
 import net.kodehawa.mantarobot.MantaroBot;
 import net.kodehawa.mantarobot.commands.currency.TextChannelGround;
+import net.kodehawa.mantarobot.commands.custom.CustomCommandCache;
 import net.kodehawa.mantarobot.commands.custom.CustomCommandHandler;
 import net.kodehawa.mantarobot.commands.info.stats.manager.CommandStatsManager;
 import net.kodehawa.mantarobot.core.CommandRegistry;
@@ -48,7 +49,6 @@ import net.kodehawa.mantarobot.utils.commands.RateLimiter;
 import org.apache.commons.lang3.tuple.Pair;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
@@ -63,13 +63,12 @@ import static net.kodehawa.mantarobot.utils.StringUtils.SPLIT_PATTERN;
 @Module
 @SuppressWarnings("unused")
 public class CustomCmds {
-    private static final Map<String, CustomCommand> customCommands = new ConcurrentHashMap<>();
+    private static final CustomCommandCache customCommands = new CustomCommandCache();
     private final static Pattern NAME_PATTERN = Pattern.compile("[a-zA-Z0-9_]+"),
-            INVALID_CHARACTERS_PATTERN = Pattern.compile("[^a-zA-Z0-9_]"),
             NAME_WILDCARD_PATTERN = Pattern.compile("[a-zA-Z0-9_*]+");
 
     public static boolean handle(String cmdName, GuildMessageReceivedEvent event, I18nContext lang, String args) {
-        CustomCommand customCommand = getCustomCommand(event.getGuild().getId(), cmdName);
+        CustomCommand customCommand = customCommands.get(event.getGuild().getId(), cmdName);
         if (customCommand == null)
             return false;
 
@@ -220,8 +219,7 @@ public class CustomCmds {
                         event.getChannel().sendMessageFormat(languageContext.get("commands.custom.no_cc"), EmoteReference.ERROR).queue();
                     }
                     int size = customCommands.size();
-                    customCommands.forEach(CustomCommand::deleteAsync);
-                    customCommands.forEach(c -> CustomCmds.customCommands.remove(c.getId()));
+                    customCommands.forEach(CustomCmds.customCommands::delete);
                     event.getChannel().sendMessageFormat(languageContext.get("commands.custom.clear.success"), EmoteReference.PENCIL, size).queue();
                     return;
                 }
@@ -294,11 +292,8 @@ public class CustomCmds {
                                         CustomCommand custom = CustomCommand.of(event.getGuild().getId(), cmd, responses);
                                         custom.getData().setOwner(event.getAuthor().getId());
                                         custom.getData().setNsfw(nsfw);
-                                        //save at DB
-                                        custom.saveAsync();
-
-                                        //reflect at local
-                                        customCommands.put(custom.getId(), custom);
+                                        //save at DB and reflect at local
+                                        customCommands.save(custom);
 
                                         event.getChannel().sendMessageFormat(languageContext.get("commands.custom.make.success"), EmoteReference.CORRECT, cmd).queue();
 
@@ -344,14 +339,11 @@ public class CustomCmds {
                         return;
                     }
 
-                    //delete at DB
-                    custom.deleteAsync();
-
-                    //reflect at local
-                    customCommands.remove(custom.getId());
+                    //delete at DB and reflect at local
+                    customCommands.delete(custom);
 
                     //clear commands if none
-                    if(customCommands.keySet().stream().noneMatch(s -> s.endsWith(":" + cmd)))
+                    if(!customCommands.isLoadedAnywhere(cmd))
                         DefaultCommandProcessor.REGISTRY.commands().remove(cmd);
 
                     event.getChannel().sendMessageFormat(languageContext.get("commands.custom.remove.success"), EmoteReference.PENCIL, cmd).queue();
@@ -393,11 +385,8 @@ public class CustomCmds {
                                     ).build(),
                             pair -> {
                                 CustomCommand custom = CustomCommand.transfer(event.getGuild().getId(), pair.getValue());
-                                //save at DB
-                                custom.saveAsync();
-
-                                //reflect at local
-                                customCommands.put(custom.getId(), custom);
+                                //save at DB and reflect at local
+                                customCommands.save(custom);
 
                                 event.getChannel().sendMessageFormat(languageContext.get("commands.custom.import.success"),
                                         custom.getName(), pair.getKey().getName(), custom.getValues().size()
@@ -466,8 +455,7 @@ public class CustomCmds {
 
                     custom.getValues().set(where - 1, vals[1]);
 
-                    custom.saveAsync();
-                    customCommands.put(custom.getId(), custom);
+                    customCommands.save(custom);
 
                     event.getChannel().sendMessage(String.format(languageContext.get("commands.custom.edit.success"), EmoteReference.CORRECT, where, custom.getName())).queue();
                     return;
@@ -493,16 +481,12 @@ public class CustomCmds {
 
                     CustomCommand newCustom = CustomCommand.of(event.getGuild().getId(), value, oldCustom.getValues());
 
-                    //change at DB
-                    oldCustom.deleteAsync();
-                    newCustom.saveAsync();
-
-                    //reflect at local
-                    customCommands.remove(oldCustom.getId());
-                    customCommands.put(newCustom.getId(), newCustom);
+                    //change at DB and reflect at local
+                    customCommands.delete(oldCustom);
+                    customCommands.save(newCustom);
 
                     //clear commands if none
-                    if(customCommands.keySet().stream().noneMatch(s -> s.endsWith(":" + cmd)))
+                    if(!customCommands.isLoadedAnywhere(cmd))
                         DefaultCommandProcessor.REGISTRY.commands().remove(cmd);
 
                     event.getChannel().sendMessageFormat(languageContext.get("commands.custom.rename.success"), EmoteReference.CORRECT, cmd, value).queue();
@@ -546,11 +530,8 @@ public class CustomCmds {
                         custom.getData().setNsfw(true);
                     }
 
-                    //save at DB
-                    custom.saveAsync();
-
-                    //reflect at local
-                    customCommands.put(custom.getId(), custom);
+                    //save at DB and reflect at local
+                    customCommands.save(custom);
 
                     event.getChannel().sendMessageFormat(languageContext.get("commands.custom.add.success"), EmoteReference.CORRECT, cmd).queue();
 
@@ -591,36 +572,4 @@ public class CustomCmds {
             }
         });
     }
-
-    //Lazy-load custom commands into cache.
-    private static CustomCommand getCustomCommand(String id, String name) {
-        if(customCommands.containsKey(id + ":" + name)) {
-            return customCommands.get(id + ":" + name);
-        }
-
-        CustomCommand custom = db().getCustomCommand(id, name);
-        //yes
-        if(custom == null)
-            return null;
-
-        if(!NAME_PATTERN.matcher(name).matches()) {
-            String newName = INVALID_CHARACTERS_PATTERN.matcher(custom.getName()).replaceAll("_");
-            log.info("Custom Command with Invalid Characters '%s' found. Replacing with '_'", custom.getName());
-
-            custom.deleteAsync();
-            custom = CustomCommand.of(custom.getGuildId(), newName, custom.getValues());
-            custom.saveAsync();
-        }
-
-        if(DefaultCommandProcessor.REGISTRY.commands().containsKey(custom.getName())) {
-            custom.deleteAsync();
-            custom = CustomCommand.of(custom.getGuildId(), "_" + custom.getName(), custom.getValues());
-            custom.saveAsync();
-        }
-
-        //add to registry
-        customCommands.put(custom.getId(), custom);
-
-        return custom;
-    }
 }
@@ -24,7 +24,6 @@ import net.dv8tion.jda.core.MessageBuilder;
 import net.dv8tion.jda.core.entities.Guild;
 import net.dv8tion.jda.core.entities.MessageEmbed;
 import net.dv8tion.jda.core.entities.User;
-import net.dv8tion.jda.core.entities.VoiceChannel;
 import net.dv8tion.jda.core.events.message.guild.GuildMessageReceivedEvent;
 import net.dv8tion.jda.core.utils.cache.SnowflakeCacheView;
 import net.kodehawa.mantarobot.MantaroBot;
@@ -49,6 +48,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Objects;
 import java.util.Random;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -64,7 +64,7 @@ public class DebugCmds {
             @Override
             protected void call(GuildMessageReceivedEvent event, I18nContext languageContext, String content, String[] args) {
                 SnowflakeCacheView<Guild> guilds = MantaroBot.getInstance().getGuildCache();
-                SnowflakeCacheView<VoiceChannel> vc = MantaroBot.getInstance().getVoiceChannelCache();
+                Set<Long> connected = MantaroBot.getInstance().getAudioManager().getConnectedGuilds();
                 SnowflakeCacheView<User> users = MantaroBot.getInstance().getUserCache();
 
                 event.getChannel().sendMessage("```prolog\n"
@@ -85,9 +85,9 @@ public class DebugCmds {
                         + "Executed Commands: " + String.format("%,d", CommandListener.getCommandTotalInt()) + "\n"
                         + "Logs: " + String.format("%,d", MantaroListener.getLogTotalInt()) + "\n"
                         + "Memory: " + String.format("%,dMB/%,dMB", (int)(getTotalMemory() - getFreeMemory()), (int)getMaxMemory()) + "\n"
-                        + "Music Connections: " + (int) vc.stream().filter(voiceChannel -> voiceChannel.getMembers().contains(voiceChannel.getGuild().getSelfMember())).count() + "\n"
-                        + "Active Connections: " + (int) vc.stream().filter(voiceChannel ->
-                        voiceChannel.getMembers().contains(voiceChannel.getGuild().getSelfMember()) && voiceChannel.getMembers().size() > 1).count() + "\n"
+                        + "Music Connections: " + connected.size() + "\n"
+                        + "Active Connections: " + (int) connected.stream().map(MantaroBot.getInstance()::getGuildById).filter(guild ->
+                        guild != null && guild.getSelfMember().getVoiceState().inVoiceChannel() && guild.getSelfMember().getVoiceState().getChannel().getMembers().size() > 1).count() + "\n"
                         + "Queue Size: " + String.format("%,d", MantaroBot.getInstance().getAudioManager().getTotalQueueSize())
                         + "```").queue();
             }
@@ -171,7 +171,7 @@ public class DebugCmds {
                             jda.getGuildCache().size(),
                             shard.getEventManager().getLastJDAEventTimeDiff() + " ms",
                             jda.getPing(),
-                            jda.getVoiceChannelCache().stream().filter(voiceChannel -> voiceChannel.getMembers().contains(voiceChannel.getGuild().getSelfMember())).count()
+                            MantaroBot.getInstance().getAudioManager().getConnectedGuildCount(MantaroBot.getInstance().getId(jda))
                     ));
 
                     if(shard.getJDA().getShardInfo() != null && shard.getJDA().getShardInfo().equals(event.getJDA().getShardInfo())) {
@@ -229,7 +229,7 @@ public class DebugCmds {
                         dead++;
                     if(reconnect)
                         reconnecting++;
-                    if(shard.getVoiceChannelCache().stream().filter(voiceChannel -> voiceChannel.getMembers().contains(voiceChannel.getGuild().getSelfMember())).count() == 0)
+                    if(MantaroBot.getInstance().getAudioManager().getConnectedGuildCount(shard.getId()) == 0)
                         zeroVoiceConnections++;
                     if(shard.getEventManager().getLastJDAEventTimeDiff() > 1650 && !reconnect)
                         high++;
@@ -16,7 +16,6 @@
 
 package net.kodehawa.mantarobot.commands;
 
-import com.github.natanbc.usagetracker.DefaultBucket;
 import com.google.common.eventbus.Subscribe;
 import net.dv8tion.jda.core.EmbedBuilder;
 import net.dv8tion.jda.core.OnlineStatus;
@@ -27,6 +26,7 @@ import net.dv8tion.jda.core.utils.cache.SnowflakeCacheView;
 import net.kodehawa.mantarobot.MantaroBot;
 import net.kodehawa.mantarobot.MantaroInfo;
 import net.kodehawa.mantarobot.commands.currency.TextChannelGround;
+import net.kodehawa.mantarobot.commands.info.stats.SlidingWindowCounter.Window;
 import net.kodehawa.mantarobot.commands.info.stats.manager.*;
 import net.kodehawa.mantarobot.core.CommandRegistry;
 import net.kodehawa.mantarobot.core.listeners.command.CommandListener;
@@ -41,7 +41,6 @@ import net.kodehawa.mantarobot.core.modules.commands.i18n.I18nContext;
 import net.kodehawa.mantarobot.core.processor.DefaultCommandProcessor;
 import net.kodehawa.mantarobot.data.I18n;
 import net.kodehawa.mantarobot.data.MantaroData;
-import net.kodehawa.mantarobot.db.entities.DBGuild;
 import net.kodehawa.mantarobot.db.entities.helpers.GuildData;
 import net.kodehawa.mantarobot.utils.DiscordUtils;
 import net.kodehawa.mantarobot.utils.Utils;
@@ -306,10 +305,10 @@ public class InfoCmds {
             @Override
             protected void call(GuildMessageReceivedEvent event, I18nContext languageContext, String content, String[] args) {
                 if(content.isEmpty()) {
-                    DBGuild dbGuild = MantaroData.db().getGuild(event.getGuild());
-                    String defaultPrefix = MantaroData.config().get().prefix[0], guildPrefix = dbGuild.getData().getGuildCustomPrefix();
+                    //Already loaded to run this command.
+                    GuildData guildData = languageContext.getGuildData();
+                    String defaultPrefix = MantaroData.config().get().prefix[0], guildPrefix = guildData.getGuildCustomPrefix();
                     String prefix = guildPrefix == null ? defaultPrefix : guildPrefix;
-                    GuildData guildData = dbGuild.getData();
 
                     EmbedBuilder embed = baseEmbed(event, languageContext.get("commands.help.title"))
                             .setColor(Color.PINK)
@@ -328,15 +327,12 @@ public class InfoCmds {
                                     )
 
                             )
-                            .setFooter(String.format(languageContext.get("commands.help.footer"), prefix,
-                                    DefaultCommandProcessor.REGISTRY.commands().values().stream().filter(c -> c.category() != null).count()), null);
+                            .setFooter(String.format(languageContext.get("commands.help.footer"), prefix, HelpUtils.commandCount()), null);
 
                     Arrays.stream(Category.values())
                             //.filter(c -> c != Category.CURRENCY || !MantaroData.config().get().isPremiumBot())
                             .filter(c -> c != Category.OWNER || CommandPermission.OWNER.test(event.getMember()))
-                            .forEach(c -> embed.addField(languageContext.get(c.toString()) + " " + languageContext.get("commands.help.commands") +":",
-                                    forType(event.getChannel(), guildData, c), false)
-                            );
+                            .forEach(c -> embed.addField(HelpUtils.categoryTitle(languageContext, c), forType(event.getChannel(), guildData, c), false));
 
                     event.getChannel().sendMessage(embed.build()).queue();
 
@@ -462,32 +458,32 @@ public class InfoCmds {
                 if(args.length > 0) {
                     String what = args[0];
                     if(what.equals("total")) {
-                        event.getChannel().sendMessage(CommandStatsManager.fillEmbed(DefaultBucket.TOTAL, baseEmbed(event, "Command Stats | Total")).build()).queue();
+                        event.getChannel().sendMessage(commandStatsManager.fillEmbed(CommandStatsManager.COMMANDS, Window.TOTAL, baseEmbed(event, "Command Stats | Total")).build()).queue();
                         return;
                     }
 
                     if(what.equals("daily")) {
-                        event.getChannel().sendMessage(CommandStatsManager.fillEmbed(DefaultBucket.DAY, baseEmbed(event, "Command Stats | Daily")).build()).queue();
+                        event.getChannel().sendMessage(commandStatsManager.fillEmbed(CommandStatsManager.COMMANDS, Window.DAY, baseEmbed(event, "Command Stats | Daily")).build()).queue();
                         return;
                     }
 
                     if(what.equals("hourly")) {
-                        event.getChannel().sendMessage(CommandStatsManager.fillEmbed(DefaultBucket.HOUR, baseEmbed(event, "Command Stats | Hourly")).build()).queue();
+                        event.getChannel().sendMessage(commandStatsManager.fillEmbed(CommandStatsManager.COMMANDS, Window.HOUR, baseEmbed(event, "Command Stats | Hourly")).build()).queue();
                         return;
                     }
 
                     if(what.equals("now")) {
-                        event.getChannel().sendMessage(CommandStatsManager.fillEmbed(DefaultBucket.MINUTE, baseEmbed(event, "Command Stats | Now")).build()).queue();
+                        event.getChannel().sendMessage(commandStatsManager.fillEmbed(CommandStatsManager.COMMANDS, Window.MINUTE, baseEmbed(event, "Command Stats | Now")).build()).queue();
                         return;
                     }
                 }
 
                 //Default
                 event.getChannel().sendMessage(baseEmbed(event, "Command Stats")
-                        .addField(languageContext.get("general.now"), CommandStatsManager.resume(DefaultBucket.MINUTE), false)
-                        .addField(languageContext.get("general.hourly"), CommandStatsManager.resume(DefaultBucket.HOUR), false)
-                        .addField(languageContext.get("general.daily"), CommandStatsManager.resume(DefaultBucket.DAY), false)
-                        .addField(languageContext.get("general.total"), CommandStatsManager.resume(DefaultBucket.TOTAL), false)
+                        .addField(languageContext.get("general.now"), commandStatsManager.resume(CommandStatsManager.COMMANDS, Window.MINUTE), false)
+                        .addField(languageContext.get("general.hourly"), commandStatsManager.resume(CommandStatsManager.COMMANDS, Window.HOUR), false)
+                        .addField(languageContext.get("general.daily"), commandStatsManager.resume(CommandStatsManager.COMMANDS, Window.DAY), false)
+                        .addField(languageContext.get("general.total"), commandStatsManager.resume(CommandStatsManager.COMMANDS, Window.TOTAL), false)
                         .build()
                 ).queue();
             }
@@ -500,32 +496,32 @@ public class InfoCmds {
                 if(args.length > 0) {
                     String what = args[0];
                     if(what.equals("total")) {
-                        event.getChannel().sendMessage(guildStatsManager.fillEmbed(GuildStatsManager.TOTAL_EVENTS, baseEmbed(event, "Guild Stats | Total")).build()).queue();
+                        event.getChannel().sendMessage(guildStatsManager.fillEmbed(GuildStatsManager.EVENTS, Window.TOTAL, baseEmbed(event, "Guild Stats | Total")).build()).queue();
                         return;
                     }
 
                     if(what.equals("daily")) {
-                        event.getChannel().sendMessage(guildStatsManager.fillEmbed(GuildStatsManager.DAY_EVENTS, baseEmbed(event, "Guild Stats | Daily")).build()).queue();
+                        event.getChannel().sendMessage(guildStatsManager.fillEmbed(GuildStatsManager.EVENTS, Window.DAY, baseEmbed(event, "Guild Stats | Daily")).build()).queue();
                         return;
                     }
 
                     if(what.equals("hourly")) {
-                        event.getChannel().sendMessage(guildStatsManager.fillEmbed(GuildStatsManager.HOUR_EVENTS, baseEmbed(event, "Guild Stats | Hourly")).build()).queue();
+                        event.getChannel().sendMessage(guildStatsManager.fillEmbed(GuildStatsManager.EVENTS, Window.HOUR, baseEmbed(event, "Guild Stats | Hourly")).build()).queue();
                         return;
                     }
 
                     if(what.equals("now")) {
-                        event.getChannel().sendMessage(guildStatsManager.fillEmbed(GuildStatsManager.MINUTE_EVENTS, baseEmbed(event, "Guild Stats | Now")).build()).queue();
+                        event.getChannel().sendMessage(guildStatsManager.fillEmbed(GuildStatsManager.EVENTS, Window.MINUTE, baseEmbed(event, "Guild Stats | Now")).build()).queue();
                         return;
                     }
                 }
 
                 //Default
                 event.getChannel().sendMessage(baseEmbed(event, "Guild Stats")
-                        .addField(languageContext.get("general.now"), guildStatsManager.resume(GuildStatsManager.MINUTE_EVENTS), false)
-                        .addField(languageContext.get("general.hourly"), guildStatsManager.resume(GuildStatsManager.HOUR_EVENTS), false)
-                        .addField(languageContext.get("general.daily"), guildStatsManager.resume(GuildStatsManager.DAY_EVENTS), false)
-                        .addField(languageContext.get("general.total"), guildStatsManager.resume(GuildStatsManager.TOTAL_EVENTS), false)
+                        .addField(languageContext.get("general.now"), guildStatsManager.resume(GuildStatsManager.EVENTS, Window.MINUTE), false)
+                        .addField(languageContext.get("general.hourly"), guildStatsManager.resume(GuildStatsManager.EVENTS, Window.HOUR), false)
+                        .addField(languageContext.get("general.daily"), guildStatsManager.resume(GuildStatsManager.EVENTS, Window.DAY), false)
+                        .addField(languageContext.get("general.total"), guildStatsManager.resume(GuildStatsManager.EVENTS, Window.TOTAL), false)
                         .setFooter("Guilds: " + MantaroBot.getInstance().getGuildCache().size(), null)
                         .build()
                 ).queue();
@@ -539,32 +535,32 @@ public class InfoCmds {
                 if(args.length > 0) {
                     String what = args[0];
                     if(what.equals("total")) {
-                        event.getChannel().sendMessage(categoryStatsManager.fillEmbed(CategoryStatsManager.TOTAL_CATS, baseEmbed(event, "Category Stats | Total")).build()).queue();
+                        event.getChannel().sendMessage(categoryStatsManager.fillEmbed(CategoryStatsManager.CATEGORIES, Window.TOTAL, baseEmbed(event, "Category Stats | Total")).build()).queue();
                         return;
                     }
 
                     if(what.equals("daily")) {
-                        event.getChannel().sendMessage(categoryStatsManager.fillEmbed(CategoryStatsManager.DAY_CATS, baseEmbed(event, "Category Stats | Daily")).build()).queue();
+                        event.getChannel().sendMessage(categoryStatsManager.fillEmbed(CategoryStatsManager.CATEGORIES, Window.DAY, baseEmbed(event, "Category Stats | Daily")).build()).queue();
                         return;
                     }
 
                     if(what.equals("hourly")) {
-                        event.getChannel().sendMessage(categoryStatsManager.fillEmbed(CategoryStatsManager.HOUR_CATS, baseEmbed(event, "Category Stats | Hourly")).build()).queue();
+                        event.getChannel().sendMessage(categoryStatsManager.fillEmbed(CategoryStatsManager.CATEGORIES, Window.HOUR, baseEmbed(event, "Category Stats | Hourly")).build()).queue();
                         return;
                     }
 
                     if(what.equals("now")) {
-                        event.getChannel().sendMessage(categoryStatsManager.fillEmbed(CategoryStatsManager.MINUTE_CATS, baseEmbed(event, "Category Stats | Now")).build()).queue();
+                        event.getChannel().sendMessage(categoryStatsManager.fillEmbed(CategoryStatsManager.CATEGORIES, Window.MINUTE, baseEmbed(event, "Category Stats | Now")).build()).queue();
                         return;
                     }
                 }
 
                 //Default
                 event.getChannel().sendMessage(baseEmbed(event, "Category Stats")
-                        .addField(languageContext.get("general.now"), categoryStatsManager.resume(CategoryStatsManager.MINUTE_CATS), false)
-                        .addField(languageContext.get("general.hourly"), categoryStatsManager.resume(CategoryStatsManager.HOUR_CATS), false)
-                        .addField(languageContext.get("general.daily"), categoryStatsManager.resume(CategoryStatsManager.DAY_CATS), false)
-                        .addField(languageContext.get("general.total"), categoryStatsManager.resume(CategoryStatsManager.TOTAL_CATS), false)
+                        .addField(languageContext.get("general.now"), categoryStatsManager.resume(CategoryStatsManager.CATEGORIES, Window.MINUTE), false)
+                        .addField(languageContext.get("general.hourly"), categoryStatsManager.resume(CategoryStatsManager.CATEGORIES, Window.HOUR), false)
+                        .addField(languageContext.get("general.daily"), categoryStatsManager.resume(CategoryStatsManager.CATEGORIES, Window.DAY), false)
+                        .addField(languageContext.get("general.total"), categoryStatsManager.resume(CategoryStatsManager.CATEGORIES, Window.TOTAL), false)
                         .build()
                 ).queue();
             }
@@ -497,8 +497,7 @@ public class MusicCmds {
 
                     if(isDJ(event.getMember())) {
                         event.getChannel().sendMessageFormat(languageContext.get("commands.music_general.queue.header"), EmoteReference.CORRECT).queue();
-                        int TEMP_QUEUE_LENGTH = musicManager.getTrackScheduler().getQueue().size();
-                        MantaroBot.getInstance().getAudioManager().getMusicManager(event.getGuild()).getTrackScheduler().getQueue().clear();
+                        int TEMP_QUEUE_LENGTH = MantaroBot.getInstance().getAudioManager().getMusicManager(event.getGuild()).getTrackScheduler().clearQueue();
 
                         event.getChannel().sendMessageFormat(languageContext.get("commands.music_general.queue.success"), EmoteReference.CORRECT, TEMP_QUEUE_LENGTH).queue();
 
@@ -699,7 +698,7 @@ public class MusicCmds {
                     event.getChannel().sendMessageFormat(languageContext.get("commands.nextsong.no_song_next"), EmoteReference.TALKING).queue();
                 } else {
                     event.getChannel().sendMessageFormat(languageContext.get("commands.nextsong.format"),
-                            EmoteReference.MEGA, next.getInfo().title, Utils.getDurationMinutes(next.getDuration()), scheduler.getQueue().size()
+                            EmoteReference.MEGA, next.getInfo().title, Utils.getDurationMinutes(next.getDuration()), scheduler.getQueueSize()
                     ).queue();
                 }
             }
@@ -959,8 +958,7 @@ public class MusicCmds {
             trackScheduler.getAudioPlayer().getPlayingTrack().stop();
         }
 
-        int TEMP_QUEUE_LENGTH = trackScheduler.getQueue().size();
-        trackScheduler.getQueue().clear();
+        int TEMP_QUEUE_LENGTH = trackScheduler.clearQueue();
 
         if(TEMP_QUEUE_LENGTH > 0) {
             event.getChannel().sendMessageFormat(lang.get("commands.stop.cleanup"), EmoteReference.OK, TEMP_QUEUE_LENGTH).queue();
@@ -439,6 +439,7 @@ public class PlayerCmds {
                 if(content.equalsIgnoreCase("reset")) {
                     dbUser.getData().setLang(null);
                     dbUser.save();
+                    I18n.updateUserLanguage(event.getAuthor().getId(), null);
                     event.getChannel().sendMessageFormat(languageContext.get("commands.profile.lang.reset_success"), EmoteReference.CORRECT).queue();
                     return;
                 }
@@ -449,6 +450,7 @@ public class PlayerCmds {
                     I18nContext newContext = new I18nContext(managedDatabase.getGuild(event.getGuild().getId()).getData(), dbUser.getData());
 
                     dbUser.save();
+                    I18n.updateUserLanguage(event.getAuthor().getId(), content);
                     event.getChannel().sendMessageFormat(newContext.get("commands.profile.lang.success"), EmoteReference.CORRECT, content).queue();
                 } else {
                     event.getChannel().sendMessageFormat(languageContext.get("commands.profile.lang.invalid"), EmoteReference.ERROR).queue();
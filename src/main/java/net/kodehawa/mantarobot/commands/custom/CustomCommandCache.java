@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2016-2018 David Alejandro Rubio Escares / Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro.  If not, see http://www.gnu.org/licenses/
+ */
+
+package net.kodehawa.mantarobot.commands.custom;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import lombok.extern.slf4j.Slf4j;
+import net.kodehawa.mantarobot.core.processor.DefaultCommandProcessor;
+import net.kodehawa.mantarobot.data.Config;
+import net.kodehawa.mantarobot.data.MantaroData;
+import net.kodehawa.mantarobot.db.entities.CustomCommand;
+
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.regex.Pattern;
+
+import static net.kodehawa.mantarobot.data.MantaroData.db;
+
+/**
+ * Per-guild cache of custom commands.
+ * <p>
+ * The first lookup on a guild loads all of its custom commands at once (a single query over the {@code guild} index), so every lookup after that is
+ * answered from memory: a name that isn't on the guild's map doesn't exist, and we don't need to ask the database about it. Before this, every
+ * unknown command name (typos, other bots' prefixes, people spamming random words) cost one database read.
+ * <p>
+ * Guilds are evicted when they haven't used a custom command in a while or when there's more than {@link Config#customCommandCacheSize} of them
+ * loaded, so the cache doesn't grow forever like the old map did.
+ * <p>
+ * Saves and deletes go through here: they're reflected on the loaded guild right away, and once the database write lands the guild's generation
+ * is bumped, so a load that read the database before the write finished gets thrown away on its next lookup instead of being kept.
+ */
+@Slf4j
+public class CustomCommandCache {
+    private static final Counter lookups = Counter.build()
+            .name("custom_command_lookups").help("Custom command lookups, by result (hit, miss)")
+            .labelNames("result")
+            .register();
+    private static final Counter guildLoads = Counter.build()
+            .name("custom_command_guild_loads").help("Times the custom commands of a guild were loaded from the database")
+            .register();
+    private static final Gauge loadedGuilds = Gauge.build()
+            .name("custom_command_loaded_guilds").help("Guilds with their custom commands currently cached")
+            .register();
+
+    private static final Pattern NAME_PATTERN = Pattern.compile("[a-zA-Z0-9_]+");
+    private static final Pattern INVALID_CHARACTERS_PATTERN = Pattern.compile("[^a-zA-Z0-9_]");
+
+    //Bumped after every write to a guild's commands lands on the database, by slot. Guilds sharing a slot just reload a bit more often.
+    private final AtomicLongArray generations = new AtomicLongArray(1024);
+    private final LoadingCache<String, GuildCommands> guilds;
+
+    public CustomCommandCache() {
+        Config config = MantaroData.config().get();
+        this.guilds = CacheBuilder.newBuilder()
+                .maximumSize(Math.max(1, config.customCommandCacheSize))
+                .expireAfterAccess(Math.max(1, config.customCommandCacheExpiry), TimeUnit.MINUTES)
+                .removalListener(notification -> loadedGuilds.dec())
+                .build(new CacheLoader<String, GuildCommands>() {
+                    @Override
+                    public GuildCommands load(String guildId) {
+                        return loadGuild(guildId);
+                    }
+                });
+    }
+
+    /**
+     * Looks up a custom command. Only touches the database the first time a guild is seen (or after it got evicted).
+     *
+     * @param guildId The id of the guild.
+     * @param name    The name of the command.
+     * @return The command, or null if the guild doesn't have a command with this name.
+     */
+    public CustomCommand get(String guildId, String name) {
+        GuildCommands loaded = guilds.getUnchecked(guildId);
+        if(loaded.generation != generations.get(slot(guildId))) {
+            //Loaded while a write was on its way to the database, it might not have it.
+            guilds.asMap().remove(guildId, loaded);
+            loaded = guilds.getUnchecked(guildId);
+        }
+
+        CustomCommand command = loaded.commands.get(name);
+        lookups.labels(command == null ? "miss" : "hit").inc();
+        return command;
+    }
+
+    /**
+     * Saves a command to the database, and reflects it on the cache.
+     */
+    public void save(CustomCommand command) {
+        reflect(command.getGuildId(), commands -> commands.put(command.getName(), command));
+        MantaroData.queue(() -> {
+            try {
+                command.save();
+            } finally {
+                written(command.getGuildId());
+            }
+        });
+    }
+
+    /**
+     * Deletes a command from the database, and reflects it on the cache.
+     */
+    public void delete(CustomCommand command) {
+        reflect(command.getGuildId(), commands -> commands.remove(command.getName()));
+        MantaroData.queue(() -> {
+            try {
+                command.delete();
+            } finally {
+                written(command.getGuildId());
+            }
+        });
+    }
+
+    /**
+     * @return Whether any of the loaded guilds has a custom command with this name.
+     */
+    public boolean isLoadedAnywhere(String name) {
+        for(GuildCommands loaded : guilds.asMap().values()) {
+            if(loaded.commands.containsKey(name))
+                return true;
+        }
+
+        return false;
+    }
+
+    //If the guild isn't loaded there's nothing to update, as the next load will read it from the database.
+    private void reflect(String guildId, Consumer<Map<String, CustomCommand>> change) {
+        GuildCommands loaded = guilds.getIfPresent(guildId);
+        if(loaded != null)
+            change.accept(loaded.commands);
+    }
+
+    private void written(String guildId) {
+        generations.incrementAndGet(slot(guildId));
+    }
+
+    private int slot(String guildId) {
+        return guildId.hashCode() & (generations.length() - 1);
+    }
+
+    private GuildCommands loadGuild(String guildId) {
+        guildLoads.inc();
+        //Taken before reading, so a write landing while we read makes this load stale.
+        long generation = generations.get(slot(guildId));
+        Map<String, CustomCommand> commands = new ConcurrentHashMap<>();
+        for(CustomCommand custom : db().getCustomCommands(guildId)) {
+            custom = sanitize(custom);
+            commands.put(custom.getName(), custom);
+        }
+
+        loadedGuilds.inc();
+        return new GuildCommands(generation, commands);
+    }
+
+    //Fixes old commands with names that aren't valid anymore (or that clash with a normal command), same as we did when loading them one by one.
+    private static CustomCommand sanitize(CustomCommand custom) {
+        if(!NAME_PATTERN.matcher(custom.getName()).matches()) {
+            String newName = INVALID_CHARACTERS_PATTERN.matcher(custom.getName()).replaceAll("_");
+            log.info("Custom Command with Invalid Characters '{}' found. Replacing with '_'", custom.getName());
+
+            custom.deleteAsync();
+            custom = CustomCommand.of(custom.getGuildId(), newName, custom.getValues());
+            custom.saveAsync();
+        }
+
+        if(DefaultCommandProcessor.REGISTRY.commands().containsKey(custom.getName())) {
+            custom.deleteAsync();
+            custom = CustomCommand.of(custom.getGuildId(), "_" + custom.getName(), custom.getValues());
+            custom.saveAsync();
+        }
+
+        return custom;
+    }
+
+    private static final class GuildCommands {
+        private final long generation;
+        private final Map<String, CustomCommand> commands;
+
+        GuildCommands(long generation, Map<String, CustomCommand> commands) {
+            this.generation = generation;
+            this.commands = commands;
+        }
+    }
+}
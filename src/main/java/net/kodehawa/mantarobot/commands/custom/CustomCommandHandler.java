@@ -9,12 +9,9 @@ import net.kodehawa.mantarobot.commands.MiscCmds;
 import net.kodehawa.mantarobot.commands.custom.legacy.ConditionalCustoms;
 import net.kodehawa.mantarobot.commands.custom.legacy.DynamicModifiers;
 import net.kodehawa.mantarobot.core.modules.commands.i18n.I18nContext;
-import net.kodehawa.mantarobot.data.MantaroData;
 import net.kodehawa.mantarobot.db.entities.helpers.GuildData;
 import net.kodehawa.mantarobot.utils.commands.EmoteReference;
-import net.kodehawa.mantarobot.utils.data.GsonDataManager;
 
-import java.net.URL;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -30,7 +27,8 @@ public class CustomCommandHandler {
         specialHandlers.put("text", (event, lang, value, args) -> event.getChannel().sendMessage(value).queue());
 
         specialHandlers.put("play", (event, lang, value, args) -> {
-            GuildData data = MantaroData.db().getGuild(event.getGuild()).getData();
+            //Already loaded for this command, no need to ask the database again.
+            GuildData data = lang.getGuildData();
             if (data.getDisabledCommands().contains("play")) {
                 event.getChannel().sendMessage(EmoteReference.ERROR + "The play command is disabled on this server. Cannot run this custom command.").queue();
                 return;
@@ -42,20 +40,12 @@ public class CustomCommandHandler {
                 return;
             }
 
-            try {
-                new URL(value);
-            } catch (Exception ignored) {
-                value = "ytsearch: " + value;
-            }
-
-            MantaroBot.getInstance().getAudioManager().loadAndPlay(event, value, false, false, lang);
+            MantaroBot.getInstance().getAudioManager().loadAndPlay(event, ParsedResponses.playQuery(value), false, false, lang);
         });
 
         specialHandlers.put("embed", (event, lang, value, args) -> {
             try {
-                EmbedJSON embed = GsonDataManager.gson(false)
-                    .fromJson('{' + value + '}', EmbedJSON.class);
-                event.getChannel().sendMessage(embed.gen(event.getMember())).queue();
+                event.getChannel().sendMessage(ParsedResponses.embed(value).get(event.getMember())).queue();
             } catch (IllegalArgumentException invalid) {
                 if (invalid.getMessage().contains("URL must be a valid http or https url")) {
                     event.getChannel().sendMessageFormat(lang.get("commands.custom.invalid_image"), EmoteReference.ERROR2).queue();
@@ -69,7 +59,7 @@ public class CustomCommandHandler {
 
         specialHandlers.put("img", (event, lang, value, args) -> {
             try {
-                if (!EmbedBuilder.URL_PATTERN.asPredicate().test(value)) {
+                if (!ParsedResponses.isValidImage(value)) {
                     event.getChannel().sendMessageFormat(lang.get("commands.custom.invalid_link"), EmoteReference.ERROR2, value).queue();
                     return;
                 }
@@ -135,13 +125,13 @@ public class CustomCommandHandler {
     }
 
     private String processText(String text) {
+        DynamicModifiers modifiers = null;
         if (text.contains("$(")) {
-            text = new DynamicModifiers()
-                .mapEvent("event", event)
-                .resolve(text);
+            modifiers = new DynamicModifiers()
+                .mapEvent("event", event);
         }
 
-        return ConditionalCustoms.resolve(text, 0);
+        return ConditionalCustoms.resolve(text, modifiers);
     }
 
     private boolean specialHandling() {
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2016-2018 David Alejandro Rubio Escares / Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro.  If not, see http://www.gnu.org/licenses/
+ */
+
+package net.kodehawa.mantarobot.commands.custom;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import net.dv8tion.jda.core.EmbedBuilder;
+import net.dv8tion.jda.core.entities.Member;
+import net.dv8tion.jda.core.entities.MessageEmbed;
+import net.kodehawa.mantarobot.utils.data.GsonDataManager;
+
+import java.net.URL;
+
+/**
+ * Parsed form of the special custom command responses ({@code embed:}, {@code img:}, {@code play:}).
+ * <p>
+ * Entries are keyed by the response text after variables and functions were resolved, so a hot custom command doesn't parse JSON (or validate URLs)
+ * again, and editing a command just makes a new entry that doesn't clash with the old one, which ages out of the cache.
+ */
+final class ParsedResponses {
+    private static final Cache<String, Embed> EMBEDS = CacheBuilder.newBuilder()
+            .maximumSize(2000)
+            .build();
+    private static final Cache<String, Boolean> IMAGES = CacheBuilder.newBuilder()
+            .maximumSize(2000)
+            .build();
+    private static final Cache<String, String> PLAY_QUERIES = CacheBuilder.newBuilder()
+            .maximumSize(2000)
+            .build();
+
+    private ParsedResponses() {}
+
+    static Embed embed(String value) {
+        Embed embed = EMBEDS.getIfPresent(value);
+        if(embed == null) {
+            embed = new Embed(value);
+            EMBEDS.put(value, embed);
+        }
+
+        return embed;
+    }
+
+    static boolean isValidImage(String value) {
+        Boolean valid = IMAGES.getIfPresent(value);
+        if(valid == null) {
+            valid = EmbedBuilder.URL_PATTERN.asPredicate().test(value);
+            IMAGES.put(value, valid);
+        }
+
+        return valid;
+    }
+
+    //Links are played as they are, anything else is searched on YouTube.
+    static String playQuery(String value) {
+        String query = PLAY_QUERIES.getIfPresent(value);
+        if(query == null) {
+            try {
+                new URL(value);
+                query = value;
+            } catch(Exception ignored) {
+                query = "ytsearch: " + value;
+            }
+
+            PLAY_QUERIES.put(value, query);
+        }
+
+        return query;
+    }
+
+    static final class Embed {
+        private final EmbedJSON json;
+        //Built once when the embed doesn't depend on who ran the command (the only thing that can is the "member" color).
+        private final MessageEmbed built;
+        //Why we couldn't parse or build it, so we don't try again on every run.
+        private final RuntimeException error;
+
+        private Embed(String value) {
+            EmbedJSON json = null;
+            MessageEmbed built = null;
+            RuntimeException error = null;
+            try {
+                json = GsonDataManager.gson(false).fromJson('{' + value + '}', EmbedJSON.class);
+                if(json.color == null || !json.color.equalsIgnoreCase("member"))
+                    built = json.gen(null);
+            } catch(RuntimeException e) {
+                error = e;
+            }
+
+            this.json = json;
+            this.built = built;
+            this.error = error;
+        }
+
+        /**
+         * @throws IllegalArgumentException If the embed has invalid values (bad links, too long strings).
+         * @throws RuntimeException         If the JSON is invalid.
+         */
+        MessageEmbed get(Member member) {
+            if(error != null)
+                throw error;
+
+            return built != null ? built : json.gen(member);
+        }
+    }
+}
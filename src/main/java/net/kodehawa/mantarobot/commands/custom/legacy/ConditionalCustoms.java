@@ -16,21 +16,38 @@
 
 package net.kodehawa.mantarobot.commands.custom.legacy;
 
-import br.com.brjdevs.java.utils.texts.MatcherUtils;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.gson.JsonPrimitive;
 import net.kodehawa.mantarobot.utils.URLEncoding;
 
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.BiPredicate;
 import java.util.function.Function;
-import java.util.regex.Pattern;
 
+/**
+ * {@code @function{arg;arg...}} expressions on custom command responses, with {@code $(variables)} from {@link DynamicModifiers}.
+ * <p>
+ * A response gets parsed once into a tree and cached by its text (so editing a command just makes a new entry), and running it is a walk over that
+ * tree: no regex, no re-splitting arguments, and only the branches that end up being used get evaluated. Variables are nodes of the tree too, so
+ * whatever a user types into a variable is just text and can't inject functions or extra arguments.
+ * <p>
+ * Calls can be nested up to {@link #MAX_DEPTH} levels, a response can have at most {@link #MAX_NODES} nodes (anything after that is kept as plain
+ * text) and no function result can be longer than {@link #MAX_LENGTH} characters, so a pathological command can't burn CPU or memory.
+ */
 public class ConditionalCustoms {
-    private static final Pattern GETTER_MODIFIER = Pattern.compile("@[a-z]+\\{.*?}"),
-            FUNCNAME = Pattern.compile("\\{"),
-            SPLITTER = Pattern.compile(";", Pattern.LITERAL);
-    private static final Map<String, Function<String[], String>> functions = new HashMap<>();
+    static final int MAX_DEPTH = 5;
+    static final int MAX_NODES = 1000;
+    static final int MAX_LENGTH = 10000;
+
+    private static final Cache<String, Node> CACHE = CacheBuilder.newBuilder()
+            .maximumSize(5000)
+            .build();
+    private static final Map<String, Func> functions = new HashMap<>();
 
     static {
         Map<String, BiPredicate<String, String>> comparators = new HashMap<>();
@@ -52,64 +69,284 @@ public class ConditionalCustoms {
 
         //@{if;INPUT1;COMPARE;INPUT2;OUTPUT_TRUE[;OUTPUT_FALSE]}
         functions.put("if", args -> {
-            if(args.length < 4) return "`if requires at least 6 parameters`";
-            String input1 = args[0], compare = args[1], input2 = args[2], outputTrue = args[3];
+            if(args.size() < 4) return "`if requires at least 6 parameters`";
+            String compare = args.get(1);
             BiPredicate<String, String> comparator = comparators.get(compare);
             if(comparator == null) return "`'The " + compare + "' comparator doesn't exist`";
-            if(comparator.test(input1, input2)) return outputTrue;
-            if(args.length >= 5) return args[4];
+            if(comparator.test(args.get(0), args.get(2))) return args.get(3);
+            if(args.size() >= 5) return args.get(4);
             return "";
         });
 
         //@{ne[;arg]+?}
         functions.put("ne", args -> {
-            for(String arg : args) if(!arg.isEmpty()) return arg;
+            for(int i = 0; i < args.size(); i++) {
+                String arg = args.get(i);
+                if(!arg.isEmpty()) return arg;
+            }
             return "";
         });
 
         //@{nes[;arg]+?}
         functions.put("nes", args -> {
-            for(String arg : args) if(!arg.trim().isEmpty()) return arg;
+            for(int i = 0; i < args.size(); i++) {
+                String arg = args.get(i);
+                if(!arg.trim().isEmpty()) return arg;
+            }
             return "";
         });
 
         //@url
-        functions.put("url", args -> URLEncoding.encode(String.join(";", args)));
+        functions.put("url", args -> URLEncoding.encode(args.joined()));
 
         //@jsonescape
         functions.put("jsonescape", args -> {
-            String s = new JsonPrimitive(String.join(";", args)).toString();
+            String s = new JsonPrimitive(args.joined()).toString();
             return s.substring(1, s.length() - 1);
         });
     }
 
-    public static String resolve(String string, int depth) {
-        if(!string.contains("@") || !string.contains("{") || !string.contains("}")) return string;
-        if(depth > 4) return string;
+    /**
+     * Resolves the functions and variables of a response.
+     *
+     * @param string    The response.
+     * @param modifiers The variables, or null if there's none. Unknown variables render as their own name.
+     * @return The resolved response.
+     */
+    public static String resolve(String string, DynamicModifiers modifiers) {
+        boolean functions = string.contains("@") && string.contains("{") && string.contains("}");
+        if(!functions && !string.contains("$(")) return string;
+
+        Node node = CACHE.getIfPresent(string);
+        if(node == null) {
+            node = new Parser(string).parse();
+            CACHE.put(string, node);
+        }
+
+        Function<String, String> variables = modifiers == null ? key -> null : modifiers::value;
+        return node.eval(variables);
+    }
 
-        return MatcherUtils.replaceAll(GETTER_MODIFIER.matcher(string), s -> {
-            s = s.substring(1, s.length() - 1);
+    private interface Func {
+        String apply(Arguments args);
+    }
 
-            if(GETTER_MODIFIER.matcher(s).find())
-                s = resolve(s, depth + 1);
+    private interface Node {
+        String eval(Function<String, String> variables);
+    }
 
-            String[] parts = FUNCNAME.split(s, 2);
+    //Evaluates the arguments of a call only when (and if) the function asks for them.
+    private static final class Arguments {
+        private final Node[] nodes;
+        private final String[] values;
+        private final Function<String, String> variables;
 
-            if(parts.length == 0)
-                return "`function name is empty`";
+        Arguments(Node[] nodes, Function<String, String> variables) {
+            this.nodes = nodes;
+            this.values = new String[nodes.length];
+            this.variables = variables;
+        }
 
-            String name = parts[0];
+        int size() {
+            return nodes.length;
+        }
 
-            if(!functions.containsKey(name))
-                return "`" + s + " isn't a function`";
+        String get(int i) {
+            String value = values[i];
+            if(value == null) {
+                value = nodes[i].eval(variables);
+                values[i] = value;
+            }
 
-            Function<String[], String> f = functions.get(name);
+            return value;
+        }
 
-            if(parts.length == 1) {
-                return f.apply(new String[0]);
+        String joined() {
+            StringBuilder builder = new StringBuilder();
+            for(int i = 0; i < nodes.length; i++) {
+                if(i > 0) builder.append(';');
+                builder.append(get(i));
             }
 
-            return f.apply(SPLITTER.split(parts[1], -1));
-        });
+            return builder.toString();
+        }
+    }
+
+    private static final class Text implements Node {
+        private final String text;
+
+        Text(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public String eval(Function<String, String> variables) {
+            return text;
+        }
+    }
+
+    private static final class Variable implements Node {
+        private final String name;
+
+        Variable(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String eval(Function<String, String> variables) {
+            return ModifierTemplate.value(variables, name);
+        }
+    }
+
+    private static final class Sequence implements Node {
+        private final Node[] nodes;
+
+        Sequence(Node[] nodes) {
+            this.nodes = nodes;
+        }
+
+        @Override
+        public String eval(Function<String, String> variables) {
+            StringBuilder builder = new StringBuilder();
+            for(Node node : nodes) {
+                builder.append(node.eval(variables));
+            }
+
+            return builder.toString();
+        }
+    }
+
+    private static final class Call implements Node {
+        private final Func function;
+        private final Node[] args;
+
+        Call(Func function, Node[] args) {
+            this.function = function;
+            this.args = args;
+        }
+
+        @Override
+        public String eval(Function<String, String> variables) {
+            String result = function.apply(new Arguments(args, variables));
+            return result.length() > MAX_LENGTH ? result.substring(0, MAX_LENGTH) : result;
+        }
+    }
+
+    //Hand-written recursive descent parser. Same syntax the old "@[a-z]+\{.*?}" regex accepted: a call can't span lines and ends at the first '}'
+    //that doesn't close a nested call.
+    private static final class Parser {
+        private final String source;
+        //Calls that were never closed. Remembered so a long unclosed response doesn't get re-parsed once per '@'. Keyed by position only: a call
+        //is only parsed again after the call around it failed, one level shallower and with fewer nodes used, and both only leave it less likely
+        //to find its '}' (more nested calls get parsed and take theirs).
+        private final BitSet unclosed = new BitSet();
+        private int position;
+        private int nodes;
+
+        Parser(String source) {
+            this.source = source;
+        }
+
+        Node parse() {
+            return sequence(0, false);
+        }
+
+        //Parses until the end of the source or, inside a call, until the character that ends the current argument ('}', ';' or a new line).
+        private Node sequence(int depth, boolean inCall) {
+            List<Node> parts = new ArrayList<>();
+            StringBuilder text = new StringBuilder();
+
+            while(position < source.length()) {
+                char c = source.charAt(position);
+                if(inCall && (c == '}' || c == ';' || c == '\n'))
+                    break;
+
+                if(nodes < MAX_NODES) {
+                    Node node = null;
+                    if(c == '$') {
+                        node = variable();
+                    } else if(c == '@' && depth < MAX_DEPTH) {
+                        node = call(depth);
+                    }
+
+                    if(node != null) {
+                        if(text.length() > 0) {
+                            parts.add(new Text(text.toString()));
+                            text.setLength(0);
+                        }
+
+                        parts.add(node);
+                        nodes++;
+                        continue;
+                    }
+                }
+
+                text.append(c);
+                position++;
+            }
+
+            if(text.length() > 0 || parts.isEmpty())
+                parts.add(new Text(text.toString()));
+
+            return parts.size() == 1 ? parts.get(0) : new Sequence(parts.toArray(new Node[0]));
+        }
+
+        private Node variable() {
+            if(!source.startsWith("$(", position))
+                return null;
+
+            int start = position + 2;
+            int end = start;
+            while(end < source.length() && isVariableChar(source.charAt(end))) end++;
+            if(end == start || end >= source.length() || source.charAt(end) != ')')
+                return null;
+
+            position = end + 1;
+            return new Variable(source.substring(start, end));
+        }
+
+        private Node call(int depth) {
+            int start = position;
+            if(unclosed.get(start))
+                return null;
+
+            int nameEnd = start + 1;
+            while(nameEnd < source.length() && source.charAt(nameEnd) >= 'a' && source.charAt(nameEnd) <= 'z') nameEnd++;
+            if(nameEnd == start + 1 || nameEnd >= source.length() || source.charAt(nameEnd) != '{')
+                return null;
+
+            int nodesBefore = nodes;
+            position = nameEnd + 1;
+            List<Node> args = new ArrayList<>();
+            while(true) {
+                args.add(sequence(depth + 1, true));
+                if(position >= source.length() || source.charAt(position) == '\n') {
+                    //Never closed, so it's just text.
+                    unclosed.set(start);
+                    position = start;
+                    nodes = nodesBefore;
+                    return null;
+                }
+
+                if(source.charAt(position) == '}')
+                    break;
+
+                position++; //;
+            }
+
+            String body = source.substring(nameEnd + 1, position);
+            position++; //}
+
+            String name = source.substring(start + 1, nameEnd);
+            Func function = functions.get(name);
+            if(function == null)
+                return new Text("`" + name + "{" + body + " isn't a function`");
+
+            return new Call(function, args.toArray(new Node[0]));
+        }
+
+        private static boolean isVariableChar(char c) {
+            return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '.';
+        }
     }
 }
@@ -24,18 +24,17 @@ import net.dv8tion.jda.core.events.guild.member.GenericGuildMemberEvent;
 import net.dv8tion.jda.core.events.message.guild.GuildMessageReceivedEvent;
 
 import java.util.Date;
-import java.util.HashSet;
-import java.util.LinkedHashMap;
-import java.util.Set;
-import java.util.regex.Pattern;
+import java.util.HashMap;
+import java.util.function.Supplier;
 
 import static net.kodehawa.mantarobot.utils.StringUtils.splitArgs;
-import static net.kodehawa.mantarobot.utils.Utils.iterate;
 import static org.apache.commons.lang3.StringUtils.capitalize;
 
-public class DynamicModifiers extends LinkedHashMap<String, String> {
-    private static final Pattern GETTER_MODIFIER = Pattern.compile("\\$\\([A-Za-z0-9.]+?\\)");
-
+/**
+ * Variables for {@code $(name)} templates. Values are suppliers, so mapping an event is cheap and only the variables a template actually uses
+ * get computed when it's resolved (see {@link ModifierTemplate}).
+ */
+public class DynamicModifiers extends HashMap<String, Supplier<String>> {
     private static String k(String... parts) {
         return String.join(".", parts);
     }
@@ -43,43 +42,45 @@ public class DynamicModifiers extends LinkedHashMap<String, String> {
     public String resolve(String string) {
         if (!string.contains("$(")) return string;
 
-        Set<String> dejaVu = new HashSet<>();
-        for (String key : iterate(GETTER_MODIFIER, string)) {
-            if (dejaVu.contains(key)) continue;
-            String mapKey = key.substring(2, key.length() - 1);
-            string = string.replace(key, getOrDefault(mapKey, mapKey).replaceAll("[^\\\\]\\\\[^\\\\]","\\\\"));
-            if (!string.contains("$(")) break;
-            dejaVu.add(key);
-        }
+        return ModifierTemplate.compile(string).render(this::value);
+    }
+
+    /**
+     * @return The value of a variable, or null if it isn't defined.
+     */
+    public String value(String key) {
+        Supplier<String> value = get(key);
+        if (value == null) return null;
 
-        return string;
+        String resolved = value.get();
+        return resolved == null ? "" : resolved;
     }
 
     public DynamicModifiers mapGuild(String prefix, Guild guild) {
         return this
-            .set(prefix, guild.getName())
-            .set(prefix, "name", guild.getName())
+            .set(prefix, guild::getName)
+            .set(prefix, "name", guild::getName)
             .mapMember(k(prefix, "owner"), guild.getOwner())
-            .set(prefix, "region", guild.getRegion().getName())
-            .set(prefix, "totalusers", String.valueOf(guild.getMembers().size()));
+            .set(prefix, "region", () -> guild.getRegion().getName())
+            .set(prefix, "totalusers", () -> String.valueOf(guild.getMemberCache().size()));
     }
 
     public DynamicModifiers mapMember(String prefix, Member member) {
         return this
-            .set(prefix, member.getAsMention())
-            .set(prefix, "username", member.getUser().getName())
-            .set(prefix, "discriminator", member.getUser().getDiscriminator())
-            .set(prefix, "name", member.getEffectiveName())
-            .set(prefix, "game", member.getGame() != null ? member.getGame().getName() : "None")
-            .set(prefix, "status", capitalize(member.getOnlineStatus().getKey()))
-            .set(prefix, "mention", member.getAsMention())
-            .set(prefix, "avatar", member.getUser().getEffectiveAvatarUrl())
-            .set(prefix, "id", member.getUser().getId());
+            .set(prefix, member::getAsMention)
+            .set(prefix, "username", () -> member.getUser().getName())
+            .set(prefix, "discriminator", () -> member.getUser().getDiscriminator())
+            .set(prefix, "name", member::getEffectiveName)
+            .set(prefix, "game", () -> member.getGame() != null ? member.getGame().getName() : "None")
+            .set(prefix, "status", () -> capitalize(member.getOnlineStatus().getKey()))
+            .set(prefix, "mention", member::getAsMention)
+            .set(prefix, "avatar", () -> member.getUser().getEffectiveAvatarUrl())
+            .set(prefix, "id", () -> member.getUser().getId());
     }
 
     public DynamicModifiers mapEvent(String prefix, GuildMessageReceivedEvent event) {
-        return this.set(prefix, event.getMember().getAsMention() + "@" + event.getChannel().getAsMention())
-                .set(prefix, "timestamp", new Date(System.currentTimeMillis()).toString())
+        return this.set(prefix, () -> event.getMember().getAsMention() + "@" + event.getChannel().getAsMention())
+                .set(prefix, "timestamp", () -> new Date(System.currentTimeMillis()).toString())
                 .mapChannel(k(prefix, "channel"), event.getChannel())
                 .mapGuild(k(prefix, "guild"), event.getGuild())
                 .mapMember(k(prefix, "me"), event.getGuild().getSelfMember())
@@ -89,7 +90,7 @@ public class DynamicModifiers extends LinkedHashMap<String, String> {
 
     public DynamicModifiers mapEvent(String prefix, GenericGuildMemberEvent event) {
         return this
-            .set(prefix, event.getMember().getAsMention() + "@" + event.getGuild().getName())
+            .set(prefix, () -> event.getMember().getAsMention() + "@" + event.getGuild().getName())
             .mapGuild(k(prefix, "guild"), event.getGuild())
             .mapMember(k(prefix, "me"), event.getGuild().getSelfMember())
             .mapMember(k(prefix, "user"), event.getMember());
@@ -97,29 +98,35 @@ public class DynamicModifiers extends LinkedHashMap<String, String> {
 
     public DynamicModifiers mapMessage(String prefix, Message message) {
         return this
-            .set(prefix, splitArgs(message.getContentRaw(), 2)[1])
-            .set(prefix, "raw", splitArgs(message.getContentRaw(), 2)[1])
-            .set(prefix, "textual", splitArgs(message.getContentDisplay(), 2)[1])
-            .set(prefix, "stripped", splitArgs(message.getContentStripped(), 2)[1]);
+            .set(prefix, () -> splitArgs(message.getContentRaw(), 2)[1])
+            .set(prefix, "raw", () -> splitArgs(message.getContentRaw(), 2)[1])
+            .set(prefix, "textual", () -> splitArgs(message.getContentDisplay(), 2)[1])
+            .set(prefix, "stripped", () -> splitArgs(message.getContentStripped(), 2)[1]);
     }
 
     public DynamicModifiers mapChannel(String prefix, TextChannel channel) {
         return this
-            .set(prefix, channel.getAsMention())
-            .set(prefix, "topic", channel.getTopic())
-            .set(prefix, "name", channel.getName())
-            .set(prefix, "id", channel.getId())
-            .set(prefix, "mention", channel.getAsMention());
+            .set(prefix, channel::getAsMention)
+            .set(prefix, "topic", channel::getTopic)
+            .set(prefix, "name", channel::getName)
+            .set(prefix, "id", channel::getId)
+            .set(prefix, "mention", channel::getAsMention);
     }
 
     public DynamicModifiers set(String key, String value) {
-        if (!containsKey(key))
-            put(key, value);
+        return set(key, () -> value);
+    }
 
+    public DynamicModifiers set(String key, Supplier<String> value) {
+        putIfAbsent(key, value);
         return this;
     }
 
     public DynamicModifiers set(String prefix, String key, String value) {
         return set(k(prefix, key), value);
     }
+
+    public DynamicModifiers set(String prefix, String key, Supplier<String> value) {
+        return set(k(prefix, key), value);
+    }
 }
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2016-2018 David Alejandro Rubio Escares / Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro.  If not, see http://www.gnu.org/licenses/
+ */
+
+package net.kodehawa.mantarobot.commands.custom.legacy;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * A {@code $(variable)} template, parsed once into literal text and variable slots.
+ * <p>
+ * Templates are cached by their source text (custom command responses, join/leave and level up messages barely change), so rendering one is a
+ * single pass over the segments that only asks for the variables the template actually uses, each of them once.
+ * Unknown variables render as their own name, same as {@link DynamicModifiers} always did.
+ */
+public final class ModifierTemplate {
+    private static final Cache<String, ModifierTemplate> CACHE = CacheBuilder.newBuilder()
+            .maximumSize(5000)
+            .build();
+    //Kept for compatibility: the old resolver ran this over every value before replacing.
+    private static final Pattern ESCAPE = Pattern.compile("[^\\\\]\\\\[^\\\\]");
+
+    //literals.length == slots.length + 1, the template is literals[0] slot[0] literals[1] slot[1] ... literals[n].
+    private final String[] literals;
+    private final int[] slots;
+    private final String[] variables;
+
+    private ModifierTemplate(String[] literals, int[] slots, String[] variables) {
+        this.literals = literals;
+        this.slots = slots;
+        this.variables = variables;
+    }
+
+    public static ModifierTemplate compile(String template) {
+        ModifierTemplate compiled = CACHE.getIfPresent(template);
+        if(compiled == null) {
+            compiled = parse(template);
+            CACHE.put(template, compiled);
+        }
+
+        return compiled;
+    }
+
+    /**
+     * Renders this template.
+     *
+     * @param resolver Gives the value of a variable, or null if it isn't defined.
+     * @return The rendered template.
+     */
+    public String render(Function<String, String> resolver) {
+        if(slots.length == 0)
+            return literals[0];
+
+        String[] values = new String[variables.length];
+        StringBuilder builder = new StringBuilder();
+        for(int i = 0; i < slots.length; i++) {
+            builder.append(literals[i]);
+
+            int slot = slots[i];
+            String value = values[slot];
+            if(value == null) {
+                value = value(resolver, variables[slot]);
+                values[slot] = value;
+            }
+
+            builder.append(value);
+        }
+
+        return builder.append(literals[slots.length]).toString();
+    }
+
+    //The value of a variable as it should be rendered. Also used by ConditionalCustoms.
+    static String value(Function<String, String> resolver, String variable) {
+        String value = resolver.apply(variable);
+        if(value == null)
+            return variable;
+
+        return value.indexOf('\\') == -1 ? value : ESCAPE.matcher(value).replaceAll("\\\\");
+    }
+
+    //Same syntax as the old regex, $\([A-Za-z0-9.]+?\)
+    private static ModifierTemplate parse(String template) {
+        List<String> literals = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        List<String> variables = new ArrayList<>();
+
+        int length = template.length();
+        int start = 0;
+        int i = template.indexOf("$(");
+        while(i != -1) {
+            int end = i + 2;
+            while(end < length && isVariableChar(template.charAt(end))) end++;
+
+            if(end > i + 2 && end < length && template.charAt(end) == ')') {
+                String variable = template.substring(i + 2, end);
+                int slot = variables.indexOf(variable);
+                if(slot == -1) {
+                    slot = variables.size();
+                    variables.add(variable);
+                }
+
+                literals.add(template.substring(start, i));
+                slots.add(slot);
+                start = end + 1;
+                i = template.indexOf("$(", start);
+            } else {
+                i = template.indexOf("$(", i + 1);
+            }
+        }
+
+        literals.add(template.substring(start));
+
+        int[] slotArray = new int[slots.size()];
+        for(int j = 0; j < slotArray.length; j++) {
+            slotArray[j] = slots.get(j);
+        }
+
+        return new ModifierTemplate(literals.toArray(new String[0]), slotArray, variables.toArray(new String[0]));
+    }
+
+    private static boolean isVariableChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '.';
+    }
+}
@@ -16,22 +16,20 @@
 
 package net.kodehawa.mantarobot.commands.game.core;
 
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import lombok.Getter;
 import net.dv8tion.jda.core.entities.Guild;
 import net.dv8tion.jda.core.events.message.guild.GuildMessageReceivedEvent;
 import net.kodehawa.mantarobot.commands.interaction.Lobby;
+import net.kodehawa.mantarobot.core.MantaroExecutors;
 import net.kodehawa.mantarobot.core.modules.commands.i18n.I18nContext;
 import net.kodehawa.mantarobot.data.MantaroData;
 import net.kodehawa.mantarobot.db.entities.DBGuild;
-import net.kodehawa.mantarobot.utils.Prometheus;
 
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -39,11 +37,7 @@ import java.util.stream.Collectors;
 public class GameLobby extends Lobby {
 
     public static final Map<Long, GameLobby> LOBBYS = new ConcurrentHashMap<>();
-    private static final ExecutorService executorService = Executors.newCachedThreadPool(
-            new ThreadFactoryBuilder()
-                .setNameFormat("GameLobby-CachedExecutor")
-                .build()
-    );
+    private static final ExecutorService executorService = MantaroExecutors.fixed("game-lobbies", 8);
 
     @Getter
     GuildMessageReceivedEvent event;
@@ -56,10 +50,6 @@ public class GameLobby extends Lobby {
     @Getter
     I18nContext languageContext;
 
-    static {
-        Prometheus.THREAD_POOL_COLLECTOR.add("game-lobbies", executorService);
-    }
-
     public GameLobby(GuildMessageReceivedEvent event, I18nContext languageContext, List<String> players, LinkedList<Game> games) {
         super(event.getGuild().getId(), event.getChannel().getId());
         this.guild = event.getGuild();
@@ -16,8 +16,8 @@
 
 package net.kodehawa.mantarobot.commands.info;
 
-import br.com.brjdevs.java.utils.async.Async;
 import lombok.extern.slf4j.Slf4j;
+import net.kodehawa.mantarobot.core.MantaroExecutors;
 
 import java.lang.management.ManagementFactory;
 import java.lang.management.OperatingSystemMXBean;
@@ -103,7 +103,7 @@ public class AsyncInfoMonitor {
         lastSystemTime = System.nanoTime();
         lastProcessCpuTime = calculateProcessCpuTime(os);
 
-        Async.task("AsyncInfoMonitorThread", () -> {
+        MantaroExecutors.timer().scheduleAtFixedRate(() -> {
             threadCount = thread.getThreadCount();
             availableProcessors = r.availableProcessors();
             freeMemory = Runtime.getRuntime().freeMemory() / mb;
@@ -114,7 +114,7 @@ public class AsyncInfoMonitor {
             vpsFreeMemory = calculateVPSFreeMemory(os);
             vpsMaxMemory = calculateVPSMaxMemory(os);
             vpsUsedMemory = vpsMaxMemory - vpsFreeMemory;
-        }, 1, TimeUnit.SECONDS);
+        }, 0, 1, TimeUnit.SECONDS);
         started = true;
     }
 
@@ -17,27 +17,47 @@
 package net.kodehawa.mantarobot.commands.info;
 
 import net.dv8tion.jda.core.entities.TextChannel;
+import net.kodehawa.mantarobot.core.MantaroCore;
 import net.kodehawa.mantarobot.core.modules.commands.base.Category;
+import net.kodehawa.mantarobot.core.modules.commands.base.Command;
+import net.kodehawa.mantarobot.core.modules.commands.i18n.I18nContext;
 import net.kodehawa.mantarobot.core.processor.DefaultCommandProcessor;
+import net.kodehawa.mantarobot.data.I18n;
 import net.kodehawa.mantarobot.db.entities.helpers.GuildData;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map.Entry;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.stream.Collectors;
 
+/**
+ * Builds the command lists shown on {@code ~>help}.
+ * <p>
+ * Commands are only registered while the bot loads, so once it has loaded completely the sorted command list of every category (and the text of
+ * each list) is built once and reused, and so are the localized category titles of each language. Only guilds that disabled something pay for
+ * filtering a list, and even then it's just a pass over an already sorted list.
+ */
 public class HelpUtils {
+    private static final ConcurrentMap<String, String[]> CATEGORY_TITLES = new ConcurrentHashMap<>();
+    private static volatile Index index;
+
     public static String forType(TextChannel channel, GuildData guildData, Category category) {
-        return forType(
-                DefaultCommandProcessor.REGISTRY.commands().entrySet().stream()
-                        .filter(entry -> entry.getValue().category() == category)
-                        .filter(entry -> !guildData.getDisabledCategories().contains(entry.getValue().category()))
-                        .filter(c -> !guildData.getDisabledCommands().contains(c.getKey()))
-                        .filter(c -> guildData.getChannelSpecificDisabledCommands().get(channel.getId()) == null || !guildData.getChannelSpecificDisabledCommands().get(channel.getId()).contains(c.getKey()))
-                        .filter(c -> !guildData.getChannelSpecificDisabledCategories().computeIfAbsent(channel.getId(), wew -> new ArrayList<>()).contains(category))
-                        .map(Entry::getKey)
-                        .collect(Collectors.toList())
-        );
+        List<Category> channelDisabledCategories = guildData.getChannelSpecificDisabledCategories().get(channel.getId());
+        if(guildData.getDisabledCategories().contains(category) || (channelDisabledCategories != null && channelDisabledCategories.contains(category)))
+            return forType(Collections.emptyList());
+
+        Index index = index();
+        List<String> channelDisabledCommands = guildData.getChannelSpecificDisabledCommands().get(channel.getId());
+        if(guildData.getDisabledCommands().isEmpty() && (channelDisabledCommands == null || channelDisabledCommands.isEmpty()))
+            return index.joined.get(category);
+
+        List<String> commands = new ArrayList<>();
+        for(String command : index.commands.get(category)) {
+            if(!guildData.getDisabledCommands().contains(command) && (channelDisabledCommands == null || !channelDisabledCommands.contains(command)))
+                commands.add(command);
+        }
+
+        return join(commands);
     }
 
     public static String forType(List<String> values) {
@@ -46,4 +66,80 @@ public class HelpUtils {
         return "``" + values.stream().sorted()
                 .collect(Collectors.joining("`` ``")) + "``";
     }
+
+    /**
+     * @return The title of the help field of a category ("Fun Commands:"), localized.
+     */
+    public static String categoryTitle(I18nContext languageContext, Category category) {
+        String[] titles = CATEGORY_TITLES.computeIfAbsent(languageContext.getContextLanguage(), language -> {
+            I18n i18n = I18n.getForLanguage(language);
+            Category[] categories = Category.values();
+            String[] t = new String[categories.length];
+            for(Category c : categories) {
+                t[c.ordinal()] = i18n.get(c.toString()) + " " + i18n.get("commands.help.commands") + ":";
+            }
+
+            return t;
+        });
+
+        return titles[category.ordinal()];
+    }
+
+    /**
+     * @return The amount of commands with a category.
+     */
+    public static long commandCount() {
+        return index().count;
+    }
+
+    //Already sorted, so this doesn't need to sort again.
+    private static String join(List<String> sorted) {
+        if(sorted.isEmpty()) return "`Disabled`";
+
+        return "``" + String.join("`` ``", sorted) + "``";
+    }
+
+    private static Index index() {
+        Index i = index;
+        if(i != null)
+            return i;
+
+        i = new Index(DefaultCommandProcessor.REGISTRY.commands());
+        //Commands can still be registered until we're done loading.
+        if(MantaroCore.hasLoadedCompletely())
+            index = i;
+
+        return i;
+    }
+
+    private static final class Index {
+        private final Map<Category, List<String>> commands = new EnumMap<>(Category.class);
+        private final Map<Category, String> joined = new EnumMap<>(Category.class);
+        private final long count;
+
+        Index(Map<String, Command> registry) {
+            long count = 0;
+            for(Category category : Category.values()) {
+                commands.put(category, new ArrayList<>());
+            }
+
+            for(Map.Entry<String, Command> entry : registry.entrySet()) {
+                Category category = entry.getValue().category();
+                if(category == null)
+                    continue;
+
+                commands.get(category).add(entry.getKey());
+                count++;
+            }
+
+            for(Map.Entry<Category, List<String>> entry : commands.entrySet()) {
+                List<String> sorted = entry.getValue();
+                Collections.sort(sorted);
+                entry.setValue(Collections.unmodifiableList(sorted));
+                joined.put(entry.getKey(), join(sorted));
+            }
+
+            this.count = count;
+        }
+    }
 }
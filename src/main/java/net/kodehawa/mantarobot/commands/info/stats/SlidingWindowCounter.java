@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2016-2018 David Alejandro Rubio Escares / Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro.  If not, see http://www.gnu.org/licenses/
+ */
+
+package net.kodehawa.mantarobot.commands.info.stats;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free event counter with sliding windows for the last minute, hour and day (plus an all-time total).
+ * <p>
+ * Each window is a ring of time slots (60 one-second slots, 60 one-minute slots and 24 one-hour slots). A slot stores the index of the time slot it
+ * belongs to next to its count, packed on a single long, so a stale slot gets reset by the same CAS that increments it. Reading a window just adds
+ * up the slots that are still inside of it, so it's O(slots), doesn't allocate and doesn't drop everything at once when a window ends, unlike the
+ * ExpiringMap-based counters we had before.
+ */
+public class SlidingWindowCounter {
+    private final Ring minute = new Ring(60, 1000L);
+    private final Ring hour = new Ring(60, 60_000L);
+    private final Ring day = new Ring(24, 3_600_000L);
+    private final LongAdder total = new LongAdder();
+
+    public void increment() {
+        long now = System.currentTimeMillis();
+        minute.increment(now);
+        hour.increment(now);
+        day.increment(now);
+        total.increment();
+    }
+
+    public long get(Window window) {
+        switch(window) {
+            case MINUTE:
+                return minute.sum(System.currentTimeMillis());
+            case HOUR:
+                return hour.sum(System.currentTimeMillis());
+            case DAY:
+                return day.sum(System.currentTimeMillis());
+            default:
+                return total.sum();
+        }
+    }
+
+    public enum Window {
+        MINUTE, HOUR, DAY, TOTAL
+    }
+
+    private static final class Ring {
+        //Lower bits hold the count, upper bits the index of the time slot.
+        private static final int COUNT_BITS = 24;
+        private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+
+        private final AtomicLongArray slots;
+        private final long slotMillis;
+
+        Ring(int size, long slotMillis) {
+            this.slots = new AtomicLongArray(size);
+            this.slotMillis = slotMillis;
+        }
+
+        void increment(long now) {
+            long index = now / slotMillis;
+            int slot = (int) (index % slots.length());
+            while(true) {
+                long current = slots.get(slot);
+                long next;
+                if((current >>> COUNT_BITS) == index) {
+                    //Saturate instead of overflowing into the index bits.
+                    if((current & COUNT_MASK) == COUNT_MASK)
+                        return;
+                    next = current + 1;
+                } else {
+                    next = (index << COUNT_BITS) | 1;
+                }
+
+                if(slots.compareAndSet(slot, current, next))
+                    return;
+            }
+        }
+
+        long sum(long now) {
+            long index = now / slotMillis;
+            long oldest = index - slots.length();
+            long sum = 0;
+            for(int i = 0; i < slots.length(); i++) {
+                long value = slots.get(i);
+                long slotIndex = value >>> COUNT_BITS;
+                if(slotIndex > oldest && slotIndex <= index)
+                    sum += value & COUNT_MASK;
+            }
+
+            return sum;
+        }
+    }
+}
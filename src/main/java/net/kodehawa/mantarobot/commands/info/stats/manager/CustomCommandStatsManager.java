@@ -16,12 +16,12 @@
 
 package net.kodehawa.mantarobot.commands.info.stats.manager;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class CustomCommandStatsManager extends StatsManager<String> {
-    public static final Map<String, AtomicInteger> TOTAL_CUSTOM_CMDS = new HashMap<>();
+    public static final Map<String, AtomicInteger> TOTAL_CUSTOM_CMDS = new ConcurrentHashMap<>();
 
     public static void log(String cmd) {
         if(cmd.isEmpty()) return;
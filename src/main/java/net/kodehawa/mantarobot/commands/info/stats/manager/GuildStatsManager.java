@@ -16,36 +16,29 @@
 
 package net.kodehawa.mantarobot.commands.info.stats.manager;
 
-import net.jodah.expiringmap.ExpirationPolicy;
-import net.jodah.expiringmap.ExpiringMap;
+import net.kodehawa.mantarobot.commands.info.stats.SlidingWindowCounter;
 import net.kodehawa.mantarobot.utils.Utils;
 
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
 
 public class GuildStatsManager extends StatsManager<GuildStatsManager.LoggedEvent> {
-    public static final ExpiringMap<LoggedEvent, AtomicInteger> DAY_EVENTS = ExpiringMap.<String, AtomicInteger>builder()
-            .expiration(1, TimeUnit.DAYS)
-            .expirationPolicy(ExpirationPolicy.CREATED)
-            .build();
-    public static final ExpiringMap<LoggedEvent, AtomicInteger> HOUR_EVENTS = ExpiringMap.<String, AtomicInteger>builder()
-            .expiration(1, TimeUnit.HOURS)
-            .expirationPolicy(ExpirationPolicy.CREATED)
-            .build();
-    public static final ExpiringMap<LoggedEvent, AtomicInteger> MINUTE_EVENTS = ExpiringMap.<String, AtomicInteger>builder()
-            .expiration(1, TimeUnit.MINUTES)
-            .expirationPolicy(ExpirationPolicy.CREATED)
-            .build();
-    public static final Map<LoggedEvent, AtomicInteger> TOTAL_EVENTS = new HashMap<>();
+    public static final Map<LoggedEvent, SlidingWindowCounter> EVENTS;
     public static int MILESTONE = 0;
 
+    static {
+        //Every event gets its counter up-front, so the map is never written to after this.
+        Map<LoggedEvent, SlidingWindowCounter> events = new EnumMap<>(LoggedEvent.class);
+        for(LoggedEvent event : LoggedEvent.values()) {
+            events.put(event, new SlidingWindowCounter());
+        }
+
+        EVENTS = Collections.unmodifiableMap(events);
+    }
+
     public static void log(LoggedEvent loggedEvent) {
-        TOTAL_EVENTS.computeIfAbsent(loggedEvent, k -> new AtomicInteger(0)).incrementAndGet();
-        DAY_EVENTS.computeIfAbsent(loggedEvent, k -> new AtomicInteger(0)).incrementAndGet();
-        HOUR_EVENTS.computeIfAbsent(loggedEvent, k -> new AtomicInteger(0)).incrementAndGet();
-        MINUTE_EVENTS.computeIfAbsent(loggedEvent, k -> new AtomicInteger(0)).incrementAndGet();
+        EVENTS.get(loggedEvent).increment();
     }
 
     public enum LoggedEvent {
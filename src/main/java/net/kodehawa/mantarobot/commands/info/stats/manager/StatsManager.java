@@ -17,8 +17,12 @@
 package net.kodehawa.mantarobot.commands.info.stats.manager;
 
 import net.dv8tion.jda.core.EmbedBuilder;
+import net.kodehawa.mantarobot.commands.info.stats.SlidingWindowCounter;
+import net.kodehawa.mantarobot.commands.info.stats.SlidingWindowCounter.Window;
 
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
@@ -71,4 +75,66 @@ public abstract class StatsManager<T> {
     public int getTotalValueFor(Map<T, AtomicInteger> map) {
         return map.values().stream().mapToInt(AtomicInteger::get).sum();
     }
+
+    public EmbedBuilder fillEmbed(Map<T, SlidingWindowCounter> counters, Window window, EmbedBuilder builder) {
+        long total = getTotalValueFor(counters, window);
+
+        if(total == 0) {
+            builder.addField("Nothing Here.", "Just dust.", false);
+            return builder;
+        }
+
+        for(Count<T> count : highest(counters, window, 12)) {
+            long percent = count.amount * 100 / total;
+            builder.addField(String.valueOf(count.key), String.format("%s %d%% (%d)", bar(percent, 15), percent, count.amount), false);
+        }
+
+        return builder;
+    }
+
+    public String resume(Map<T, SlidingWindowCounter> counters, Window window) {
+        long total = getTotalValueFor(counters, window);
+        if(total == 0)
+            return "No Events Logged.";
+
+        StringBuilder builder = new StringBuilder("Count: ").append(total);
+        for(Count<T> count : highest(counters, window, 5)) {
+            int percent = Math.round((float) count.amount * 100 / total);
+            builder.append('\n').append(String.format("%s %d%% **%s** (%d)", bar(percent, 15), percent, count.key, count.amount));
+        }
+
+        return builder.toString();
+    }
+
+    public long getTotalValueFor(Map<T, SlidingWindowCounter> counters, Window window) {
+        long total = 0;
+        for(SlidingWindowCounter counter : counters.values()) {
+            total += counter.get(window);
+        }
+
+        return total;
+    }
+
+    //Reads every counter once, so the values used for sorting are the same ones we show.
+    private static <T> List<Count<T>> highest(Map<T, SlidingWindowCounter> counters, Window window, int limit) {
+        List<Count<T>> counts = new ArrayList<>();
+        for(Map.Entry<T, SlidingWindowCounter> entry : counters.entrySet()) {
+            long amount = entry.getValue().get(window);
+            if(amount > 0)
+                counts.add(new Count<>(entry.getKey(), amount));
+        }
+
+        counts.sort((a, b) -> Long.compare(b.amount, a.amount));
+        return counts.size() > limit ? counts.subList(0, limit) : counts;
+    }
+
+    private static final class Count<T> {
+        final T key;
+        final long amount;
+
+        Count(T key, long amount) {
+            this.key = key;
+            this.amount = amount;
+        }
+    }
 }
@@ -25,6 +25,8 @@ import net.dv8tion.jda.core.entities.User;
 import net.dv8tion.jda.core.events.message.react.MessageReactionAddEvent;
 import net.kodehawa.mantarobot.MantaroBot;
 import net.kodehawa.mantarobot.commands.interaction.Lobby;
+import net.kodehawa.mantarobot.core.OutboundQueue;
+import net.kodehawa.mantarobot.core.OutboundQueue.Priority;
 import net.kodehawa.mantarobot.core.listeners.operations.InteractiveOperations;
 import net.kodehawa.mantarobot.core.listeners.operations.ReactionOperations;
 import net.kodehawa.mantarobot.core.listeners.operations.core.Operation;
@@ -194,7 +196,7 @@ public class Poll extends Lobby {
                             .collect(Collectors.joining("\n"));
 
                     embedBuilder.addField(languageContext.get("commands.poll.result"), "```diff\n" + votes + "```", false);
-                    getChannel().sendMessage(embedBuilder.build()).queue();
+                    OutboundQueue.send(getChannel(), Priority.ANNOUNCEMENT, embedBuilder.build());
                 });
 
                 getRunningPolls().remove(getChannel().getId());
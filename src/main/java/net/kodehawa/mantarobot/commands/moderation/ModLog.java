@@ -18,6 +18,7 @@ package net.kodehawa.mantarobot.commands.moderation;
 
 import net.dv8tion.jda.core.EmbedBuilder;
 import net.dv8tion.jda.core.entities.Member;
+import net.dv8tion.jda.core.entities.TextChannel;
 import net.dv8tion.jda.core.entities.User;
 import net.kodehawa.mantarobot.MantaroBot;
 import net.kodehawa.mantarobot.commands.currency.profile.Badge;
@@ -26,6 +27,7 @@ import net.kodehawa.mantarobot.db.ManagedDatabase;
 import net.kodehawa.mantarobot.db.entities.DBGuild;
 import net.kodehawa.mantarobot.db.entities.Player;
 import net.kodehawa.mantarobot.db.entities.helpers.PlayerData;
+import net.kodehawa.mantarobot.log.LogAggregator;
 
 public class ModLog {
 
@@ -82,8 +84,9 @@ public class ModLog {
         }
 
         if(guildDB.getData().getGuildLogChannel() != null) {
-            if(MantaroBot.getInstance().getTextChannelById(guildDB.getData().getGuildLogChannel()) != null) {
-                MantaroBot.getInstance().getTextChannelById(guildDB.getData().getGuildLogChannel()).sendMessage(embedBuilder.build()).queue();
+            TextChannel logChannel = MantaroBot.getInstance().getTextChannelById(guildDB.getData().getGuildLogChannel());
+            if(logChannel != null) {
+                LogAggregator.log(logChannel, embedBuilder.build());
             }
         }
     }
@@ -96,7 +99,10 @@ public class ModLog {
         embedBuilder.addField("Reason", reason, false);
         embedBuilder.setAuthor("Unban", null, author.getUser().getEffectiveAvatarUrl());
         if(guildDB.getData().getGuildLogChannel() != null) {
-            MantaroBot.getInstance().getTextChannelById(guildDB.getData().getGuildLogChannel()).sendMessage(embedBuilder.build()).queue();
+            TextChannel logChannel = MantaroBot.getInstance().getTextChannelById(guildDB.getData().getGuildLogChannel());
+            if(logChannel != null) {
+                LogAggregator.log(logChannel, embedBuilder.build());
+            }
         }
     }
 
@@ -21,9 +21,9 @@ import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
 import lombok.Getter;
 import lombok.Setter;
 import net.dv8tion.jda.core.entities.Guild;
-import net.kodehawa.mantarobot.MantaroBot;
 import net.kodehawa.mantarobot.commands.music.handlers.AudioPlayerSendHandler;
 import net.kodehawa.mantarobot.commands.music.requester.TrackScheduler;
+import net.kodehawa.mantarobot.core.MantaroExecutors;
 import net.kodehawa.mantarobot.utils.commands.EmoteReference;
 
 import java.util.concurrent.ScheduledFuture;
@@ -38,6 +38,8 @@ public class GuildMusicManager {
     @Setter
     public boolean isAwaitingDeath;
     private ScheduledFuture<?> leaveTask = null;
+    //Last time a command used this, or the last sweep that found it playing or connected. See MantaroAudioManager.
+    private volatile long lastActive = System.currentTimeMillis();
 
     public GuildMusicManager(AudioPlayerManager manager, String guildId) {
         audioPlayer = manager.createPlayer();
@@ -51,7 +53,7 @@ public class GuildMusicManager {
         if(guild == null) return;
 
         isAwaitingDeath = false;
-        trackScheduler.getQueue().clear();
+        trackScheduler.clearQueue();
         if(trackScheduler.getRequestedChannelParsed() != null) {
             trackScheduler.getRequestedChannelParsed().sendMessageFormat(trackScheduler.getLanguage().get("commands.music_general.listener.leave"),
                     EmoteReference.SAD, guild.getSelfMember().getVoiceState().getChannel().getName()
@@ -63,7 +65,7 @@ public class GuildMusicManager {
     public void scheduleLeave() {
         if(leaveTask != null)
             return;
-        leaveTask = MantaroBot.getInstance().getExecutorService().schedule(this::leave, 2, TimeUnit.MINUTES);
+        leaveTask = MantaroExecutors.timer().schedule(() -> MantaroExecutors.common().execute(this::leave), 2, TimeUnit.MINUTES);
     }
 
     public void cancelLeave() {
@@ -73,6 +75,28 @@ public class GuildMusicManager {
         leaveTask = null;
     }
 
+    void touch() {
+        lastActive = System.currentTimeMillis();
+    }
+
+    long getLastActive() {
+        return lastActive;
+    }
+
+    /**
+     * @return Whether nothing is playing or queued.
+     */
+    boolean isIdle() {
+        return audioPlayer.getPlayingTrack() == null && trackScheduler.getQueue().isEmpty();
+    }
+
+    //Only called once it's out of MantaroAudioManager, nothing can use it anymore.
+    void destroy() {
+        cancelLeave();
+        trackScheduler.clearQueue();
+        audioPlayer.destroy();
+    }
+
     public AudioPlayerSendHandler getAudioPlayerSendHandler() {
         return new AudioPlayerSendHandler(audioPlayer);
     }
@@ -25,13 +25,19 @@ import com.sedmelluq.discord.lavaplayer.source.twitch.TwitchStreamAudioSourceMan
 import com.sedmelluq.discord.lavaplayer.source.vimeo.VimeoAudioSourceManager;
 import com.sedmelluq.discord.lavaplayer.source.youtube.YoutubeAudioSourceManager;
 import com.sedmelluq.discord.lavaplayer.track.playback.NonAllocatingAudioFrameBuffer;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
 import lombok.Getter;
 import net.dv8tion.jda.core.entities.Guild;
 import net.dv8tion.jda.core.events.message.guild.GuildMessageReceivedEvent;
+import net.kodehawa.mantarobot.MantaroBot;
 import net.kodehawa.mantarobot.commands.music.requester.AudioLoader;
 import net.kodehawa.mantarobot.commands.music.requester.TrackScheduler;
 import net.kodehawa.mantarobot.commands.music.utils.AudioCmdUtils;
+import net.kodehawa.mantarobot.core.MantaroExecutors;
 import net.kodehawa.mantarobot.core.modules.commands.i18n.I18nContext;
+import net.kodehawa.mantarobot.data.Config;
+import net.kodehawa.mantarobot.data.MantaroData;
 import net.kodehawa.mantarobot.utils.Prometheus;
 import org.apache.http.client.config.CookieSpecs;
 import org.apache.http.client.config.RequestConfig;
@@ -39,20 +45,49 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.reflect.Field;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
+/**
+ * Audio players of every guild, and where music gets loaded from.
+ * <p>
+ * Guilds get their {@link GuildMusicManager} (and its player) the first time they use music. Once a guild has been idle (nothing playing or
+ * queued) and disconnected for {@link Config#musicManagerIdleMinutes}, its manager is evicted and the player destroyed, so guilds that played music
+ * once don't keep a player alive forever.
+ * <p>
+ * The guilds we're connected on (in total and per shard) and the amount of queued tracks are kept up to date as they change, so counting them
+ * doesn't go through every voice channel, guild or queue.
+ */
 public class MantaroAudioManager {
     private static final Logger LOGGER = LoggerFactory.getLogger(MantaroAudioManager.class);
+    private static final Gauge managers = Gauge.build()
+            .name("music_managers").help("Guild music managers, by state (live, idle). Each manager is counted on one state only, idle ones are waiting to be evicted")
+            .labelNames("state")
+            .register();
+    private static final Counter evicted = Counter.build()
+            .name("music_managers_evicted").help("Guild music managers evicted after being idle and disconnected")
+            .register();
 
     @Getter
-    private final Map<String, GuildMusicManager> musicManagers;
+    private final ConcurrentMap<Long, GuildMusicManager> musicManagers;
     @Getter
     private final AudioPlayerManager playerManager;
+    private final long idleMillis;
+    private final Set<Long> connectedGuilds = ConcurrentHashMap.newKeySet();
+    //Connected guilds by shard id. Only changed when connectedGuilds does, so both agree.
+    private final AtomicIntegerArray connectedByShard;
 
-    public MantaroAudioManager() {
-        this.musicManagers = new HashMap<>();
+    public MantaroAudioManager(int totalShards) {
+        this.connectedByShard = new AtomicIntegerArray(Math.max(1, totalShards));
+        this.musicManagers = new ConcurrentHashMap<>();
+        this.idleMillis = TimeUnit.MINUTES.toMillis(Math.max(1, MantaroData.config().get().musicManagerIdleMinutes));
+        MantaroExecutors.timer().scheduleAtFixedRate(() -> MantaroExecutors.common().execute(this::evictIdle), 1, 1, TimeUnit.MINUTES);
         DefaultAudioPlayerManager apm = new DefaultAudioPlayerManager();
         Prometheus.THREAD_POOL_COLLECTOR.add("lavaplayer-track-playback", apm.getExecutor());
         tryTrackingExecutor(apm, "lavaplayer-track-info", "trackInfoExecutorService");
@@ -71,14 +106,62 @@ public class MantaroAudioManager {
     }
 
     public GuildMusicManager getMusicManager(Guild guild) {
-        GuildMusicManager musicManager = musicManagers.computeIfAbsent(guild.getId(), id -> new GuildMusicManager(playerManager, guild.getId()));
-        if(guild.getAudioManager().getSendingHandler() == null)
-            guild.getAudioManager().setSendingHandler(musicManager.getAudioPlayerSendHandler());
-        return musicManager;
+        //Touched while holding the entry, so it can't get evicted between this and the caller using it. The send handler is set while holding it
+        //too, as eviction clears it while holding the entry.
+        return musicManagers.compute(guild.getIdLong(), (id, manager) -> {
+            if(manager == null)
+                manager = new GuildMusicManager(playerManager, guild.getId());
+            manager.touch();
+            if(guild.getAudioManager().getSendingHandler() == null)
+                guild.getAudioManager().setSendingHandler(manager.getAudioPlayerSendHandler());
+            return manager;
+        });
+    }
+
+    /**
+     * Removes the music manager of a guild and destroys its player, for example when we leave the guild.
+     */
+    public void removeMusicManager(long guildId) {
+        markDisconnected(guildId);
+        GuildMusicManager manager = musicManagers.remove(guildId);
+        if(manager != null)
+            manager.destroy();
     }
 
     public long getTotalQueueSize() {
-        return musicManagers.values().stream().map(m -> m.getTrackScheduler().getQueue().size()).mapToInt(Integer::intValue).sum();
+        return TrackScheduler.getTotalQueueSize();
+    }
+
+    /**
+     * Called when we join a voice channel on this guild (see VoiceChannelListener).
+     */
+    public void connected(long guildId) {
+        markConnected(guildId);
+    }
+
+    /**
+     * Called when we leave the voice channel of this guild (see VoiceChannelListener).
+     */
+    public void disconnected(long guildId) {
+        markDisconnected(guildId);
+    }
+
+    /**
+     * @return The guilds we're connected to a voice channel on.
+     */
+    public Set<Long> getConnectedGuilds() {
+        return Collections.unmodifiableSet(connectedGuilds);
+    }
+
+    /**
+     * @param shardId The id of the shard.
+     * @return How many guilds of a shard we're connected to a voice channel on.
+     */
+    public int getConnectedGuildCount(int shardId) {
+        if(shardId < 0 || shardId >= connectedByShard.length())
+            return 0;
+
+        return connectedByShard.get(shardId);
     }
 
     public void loadAndPlay(GuildMessageReceivedEvent event, String trackUrl, boolean skipSelection, boolean addFirst, I18nContext lang) {
@@ -96,6 +179,74 @@ public class MantaroAudioManager {
         playerManager.loadItemOrdered(musicManager, trackUrl, new AudioLoader(musicManager, event, skipSelection, addFirst));
     }
 
+    //Evicts managers that have been idle and disconnected for long enough, and updates the manager counts.
+    private void evictIdle() {
+        try {
+            long now = System.currentTimeMillis();
+            int live = 0;
+            int idle = 0;
+            for(Map.Entry<Long, GuildMusicManager> entry : musicManagers.entrySet()) {
+                GuildMusicManager manager = entry.getValue();
+                Guild guild = MantaroBot.getInstance().getGuildById(entry.getKey());
+                boolean connected = guild != null && (guild.getAudioManager().isConnected() || guild.getAudioManager().isAttemptingToConnect());
+                //Fixes up connections whose events we missed (a shard reconnecting, for example).
+                if(guild != null && guild.getSelfMember().getVoiceState().inVoiceChannel())
+                    markConnected(entry.getKey());
+                else
+                    markDisconnected(entry.getKey());
+
+                if(connected || !manager.isIdle()) {
+                    manager.touch();
+                    live++;
+                    continue;
+                }
+
+                idle++;
+                if(now - manager.getLastActive() < idleMillis)
+                    continue;
+
+                //Checked again while holding the entry, a command might have just used it.
+                boolean[] removed = new boolean[1];
+                musicManagers.computeIfPresent(entry.getKey(), (id, current) -> {
+                    if(current != manager || !current.isIdle() || now - current.getLastActive() < idleMillis)
+                        return current;
+                    removed[0] = true;
+                    //The send handler holds the old player, the next manager of this guild needs to set its own. Cleared before the entry is
+                    //gone, so a new manager can't see the old handler and keep it.
+                    if(guild != null)
+                        guild.getAudioManager().setSendingHandler(null);
+                    return null;
+                });
+
+                if(removed[0]) {
+                    idle--;
+                    manager.destroy();
+                    evicted.inc();
+                }
+            }
+
+            managers.labels("live").set(live);
+            managers.labels("idle").set(idle);
+        } catch(Exception e) {
+            LOGGER.error("Error evicting idle music managers", e);
+        }
+    }
+
+    private void markConnected(long guildId) {
+        if(connectedGuilds.add(guildId))
+            connectedByShard.incrementAndGet(shardOf(guildId));
+    }
+
+    private void markDisconnected(long guildId) {
+        if(connectedGuilds.remove(guildId))
+            connectedByShard.decrementAndGet(shardOf(guildId));
+    }
+
+    //Same mapping as MantaroBot#getShardForGuild.
+    private int shardOf(long guildId) {
+        return (int) ((guildId >> 22) % connectedByShard.length());
+    }
+
     private static void tryTrackingExecutor(DefaultAudioPlayerManager manager, String key, String fieldName) {
         try {
             Field f = DefaultAudioPlayerManager.class.getDeclaredField(fieldName);
@@ -24,16 +24,23 @@ import net.dv8tion.jda.core.events.guild.voice.GuildVoiceJoinEvent;
 import net.dv8tion.jda.core.events.guild.voice.GuildVoiceLeaveEvent;
 import net.dv8tion.jda.core.events.guild.voice.GuildVoiceMoveEvent;
 import net.dv8tion.jda.core.events.guild.voice.GuildVoiceMuteEvent;
-import net.dv8tion.jda.core.hooks.EventListener;
 import net.kodehawa.mantarobot.MantaroBot;
 import net.kodehawa.mantarobot.commands.music.GuildMusicManager;
 import net.kodehawa.mantarobot.commands.music.requester.TrackScheduler;
+import net.kodehawa.mantarobot.core.listeners.FilteredEventListener;
 import net.kodehawa.mantarobot.utils.commands.EmoteReference;
 import net.kodehawa.mantarobot.utils.commands.RateLimiter;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
-public class VoiceChannelListener implements EventListener {
+public class VoiceChannelListener implements FilteredEventListener {
+    private static final Set<Class<? extends Event>> EVENT_TYPES = new HashSet<>(Arrays.asList(
+            GuildVoiceMoveEvent.class, GuildVoiceJoinEvent.class, GuildVoiceLeaveEvent.class, GuildVoiceMuteEvent.class
+    ));
+
     private RateLimiter vcRatelimiter = new RateLimiter(TimeUnit.SECONDS, 10);
     private static boolean validate(GuildVoiceState state) {
         return state == null || !state.inVoiceChannel();
@@ -43,6 +50,11 @@ public class VoiceChannelListener implements EventListener {
         return vc.getMembers().stream().noneMatch(m -> !m.getUser().isBot());
     }
 
+    @Override
+    public Set<Class<? extends Event>> getEventTypes() {
+        return EVENT_TYPES;
+    }
+
     @Override
     public void onEvent(Event event) {
         if(event instanceof GuildVoiceMoveEvent) {
@@ -65,11 +77,17 @@ public class VoiceChannelListener implements EventListener {
     }
 
     private void onGuildVoiceJoin(GuildVoiceJoinEvent event) {
+        if(event.getMember().getUser().getIdLong() == event.getJDA().getSelfUser().getIdLong())
+            MantaroBot.getInstance().getAudioManager().connected(event.getGuild().getIdLong());
+
         if(event.getChannelJoined().getMembers().contains(event.getGuild().getSelfMember()))
             onJoin(event.getChannelJoined());
     }
 
     private void onGuildVoiceLeave(GuildVoiceLeaveEvent event) {
+        if(event.getMember().getUser().getIdLong() == event.getJDA().getSelfUser().getIdLong())
+            MantaroBot.getInstance().getAudioManager().disconnected(event.getGuild().getIdLong());
+
         if(event.getChannelLeft().getMembers().contains(event.getGuild().getSelfMember()))
             onLeave(event.getChannelLeft());
     }
@@ -149,7 +149,7 @@ public class AudioLoader implements AudioLoadResultHandler {
                 dbGuild.getData().getMusicQueueSizeLimit();
         int fqSize = guildData.getMaxFairQueue();
 
-        if(musicManager.getTrackScheduler().getQueue().size() > queueLimit && !dbUser.isPremium() && !dbGuild.isPremium()) {
+        if(musicManager.getTrackScheduler().getQueueSize() > queueLimit && !dbUser.isPremium() && !dbGuild.isPremium()) {
             if(!silent)
                 event.getChannel().sendMessageFormat(language.get("commands.music_general.loader.over_queue_limit"),
                         EmoteReference.WARNING, title, queueLimit
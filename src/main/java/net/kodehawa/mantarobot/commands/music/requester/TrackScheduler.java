@@ -22,6 +22,7 @@ import com.sedmelluq.discord.lavaplayer.tools.FriendlyException;
 import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
 import com.sedmelluq.discord.lavaplayer.track.AudioTrackEndReason;
 import com.sedmelluq.discord.lavaplayer.track.AudioTrackInfo;
+import io.prometheus.client.Gauge;
 import lombok.Getter;
 import lombok.Setter;
 import net.dv8tion.jda.core.MessageBuilder;
@@ -29,6 +30,8 @@ import net.dv8tion.jda.core.entities.*;
 import net.dv8tion.jda.core.managers.AudioManager;
 import net.kodehawa.mantarobot.MantaroBot;
 import net.kodehawa.mantarobot.commands.music.utils.AudioUtils;
+import net.kodehawa.mantarobot.core.OutboundQueue;
+import net.kodehawa.mantarobot.core.OutboundQueue.Priority;
 import net.kodehawa.mantarobot.core.shard.MantaroShard;
 import net.kodehawa.mantarobot.data.I18n;
 import net.kodehawa.mantarobot.data.MantaroData;
@@ -39,14 +42,22 @@ import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
 public class TrackScheduler extends AudioEventAdapter {
+    private static final Gauge queuedTracks = Gauge.build()
+            .name("music_queued_tracks").help("Tracks queued on every music player")
+            .register();
+
     @Getter
     private final AudioPlayer audioPlayer;
     private final String guildId;
+    //Only read through this, adding and removing tracks goes through the methods here so the queue sizes stay right.
     @Getter
     private final ConcurrentLinkedDeque<AudioTrack> queue;
+    //ConcurrentLinkedDeque.size() walks the whole queue.
+    private final AtomicInteger queueSize = new AtomicInteger();
     @Getter
     private final List<String> voteSkips;
     @Getter
@@ -80,6 +91,7 @@ public class TrackScheduler extends AudioEventAdapter {
                 queue.addFirst(track);
             else
                 queue.offer(track);
+            queued(1);
         } else {
             currentTrack = track;
         }
@@ -96,6 +108,8 @@ public class TrackScheduler extends AudioEventAdapter {
         } else {
             if(currentTrack != null) previousTrack = currentTrack;
             currentTrack = queue.poll();
+            if(currentTrack != null)
+                queued(-1);
             audioPlayer.startTrack(currentTrack, !force);
             if(skip) onTrackStart();
             if(repeatMode == Repeat.QUEUE) queue(previousTrack.makeClone());
@@ -126,16 +140,18 @@ public class TrackScheduler extends AudioEventAdapter {
                 }
                 //Avoid massive spam of "now playing..." when repeating songs.
                 if(lastMessageSentAt == 0 || lastMessageSentAt + 10000 < System.currentTimeMillis()) {
-                    getRequestedChannelParsed().sendMessage(
+                    //Keyed, so if tracks change faster than we can send these only the latest one gets sent.
+                    OutboundQueue.send(getRequestedChannelParsed(), Priority.ANNOUNCEMENT, "now-playing",
                             new MessageBuilder().append(String.format(language.get("commands.music_general.np_message"),
                                     "\uD83D\uDCE3", title, AudioUtils.getLength(trackLength), voiceChannel.getName(), user != null ?
                                             String.format(language.get("general.requested_by"), String.format("**%s#%s**", user.getName(), user.getDiscriminator())) : ""))
                                     .stripMentions(getGuild(), Message.MentionType.EVERYONE, Message.MentionType.HERE)
-                                    .build()
-                    ).queue(message -> {
-                        lastMessageSentAt = System.currentTimeMillis();
-                        message.delete().queueAfter(90, TimeUnit.SECONDS);
-                    });
+                                    .build(),
+                            message -> {
+                                lastMessageSentAt = System.currentTimeMillis();
+                                message.delete().queueAfter(90, TimeUnit.SECONDS);
+                            }, null
+                    );
                 }
             }
         }
@@ -154,9 +170,10 @@ public class TrackScheduler extends AudioEventAdapter {
         if(getRequestedChannelParsed() != null && getRequestedChannelParsed().canTalk()) {
             //Avoid massive spam of when song error in mass.
             if(lastErrorSentAt == 0 || lastErrorSentAt + 10000 < System.currentTimeMillis()) {
-                getRequestedChannelParsed().sendMessageFormat(
-                        language.get("commands.music_general.track_error"), EmoteReference.SAD
-                ).queue(success -> lastErrorSentAt = System.currentTimeMillis());
+                OutboundQueue.send(getRequestedChannelParsed(), Priority.ANNOUNCEMENT, "track-error",
+                        new MessageBuilder().appendFormat(language.get("commands.music_general.track_error"), EmoteReference.SAD).build(),
+                        success -> lastErrorSentAt = System.currentTimeMillis(), null
+                );
             }
         }
     }
@@ -176,8 +193,7 @@ public class TrackScheduler extends AudioEventAdapter {
         List<AudioTrack> tempList = new ArrayList<>(getQueue());
         Collections.shuffle(tempList);
 
-        queue.clear();
-        queue.addAll(tempList);
+        replaceQueue(tempList);
     }
 
     public MantaroShard getShard() {
@@ -190,15 +206,50 @@ public class TrackScheduler extends AudioEventAdapter {
     }
 
     public void stop() {
-        queue.clear();
+        clearQueue();
         onStop();
     }
 
     public void getQueueAsList(Consumer<List<AudioTrack>> list) {
         List<AudioTrack> tempList = new ArrayList<>(getQueue());
         list.accept(tempList);
-        queue.clear();
-        queue.addAll(tempList);
+        replaceQueue(tempList);
+    }
+
+    public int getQueueSize() {
+        return queueSize.get();
+    }
+
+    /**
+     * @return The amount of tracks queued on every player.
+     */
+    public static long getTotalQueueSize() {
+        return (long) queuedTracks.get();
+    }
+
+    /**
+     * Removes every track from the queue.
+     *
+     * @return How many tracks were removed.
+     */
+    public int clearQueue() {
+        int removed = 0;
+        while(queue.poll() != null)
+            removed++;
+
+        queued(-removed);
+        return removed;
+    }
+
+    private void replaceQueue(List<AudioTrack> tracks) {
+        clearQueue();
+        queue.addAll(tracks);
+        queued(tracks.size());
+    }
+
+    private void queued(int amount) {
+        queueSize.addAndGet(amount);
+        queuedTracks.inc(amount);
     }
 
     private void onStop() {
@@ -215,10 +266,11 @@ public class TrackScheduler extends AudioEventAdapter {
         try {
             TextChannel ch = getRequestedChannelParsed();
             if(ch != null && ch.canTalk()) {
-                ch.sendMessageFormat(
-                        language.get("commands.music_general.queue_finished"),
-                        EmoteReference.MEGA, premium ? "" : String.format(language.get("commands.music_general.premium_beg"), EmoteReference.HEART)
-                ).queue(message -> message.delete().queueAfter(30, TimeUnit.SECONDS));
+                OutboundQueue.send(ch, Priority.ANNOUNCEMENT, "queue-finished",
+                        new MessageBuilder().appendFormat(language.get("commands.music_general.queue_finished"),
+                                EmoteReference.MEGA, premium ? "" : String.format(language.get("commands.music_general.premium_beg"), EmoteReference.HEART)).build(),
+                        message -> message.delete().queueAfter(30, TimeUnit.SECONDS), null
+                );
             }
         } catch(Exception ignored) { }
 
@@ -121,7 +121,7 @@ public class AudioCmdUtils {
                         .addField(lang.get("commands.music_general.queue.total_queue_time"),
                                 String.format("`%s`", Utils.getReadableTime(length)), true)
                         .addField(lang.get("commands.music_general.queue.total_size"),
-                                String.format("`%d %s`", trackScheduler.getQueue().size(), lang.get("commands.music_general.queue.songs")), true)
+                                String.format("`%d %s`", trackScheduler.getQueueSize(), lang.get("commands.music_general.queue.songs")), true)
                         .addField(lang.get("commands.music_general.queue.togglers"),
                                 String.format("`%s / %s`", trackScheduler.getRepeatMode() == null ? "false" : trackScheduler.getRepeatMode(), String.valueOf(trackScheduler.getAudioPlayer().isPaused())), true)
                         .addField(lang.get("commands.music_general.queue.playing_in"),
@@ -144,7 +144,7 @@ public class AudioCmdUtils {
                     .addField(lang.get("commands.music_general.queue.total_queue_time"),
                             String.format("`%s`", Utils.getReadableTime(length)), true)
                     .addField(lang.get("commands.music_general.queue.total_size"),
-                            String.format("`%d %s`", trackScheduler.getQueue().size(), lang.get("commands.music_general.queue.songs")), true)
+                            String.format("`%d %s`", trackScheduler.getQueueSize(), lang.get("commands.music_general.queue.songs")), true)
                     .addField(lang.get("commands.music_general.queue.togglers"),
                             String.format("`%s / %s`", trackScheduler.getRepeatMode() == null ? "false" :
                                     trackScheduler.getRepeatMode(), String.valueOf(trackScheduler.getAudioPlayer().isPaused())), true)
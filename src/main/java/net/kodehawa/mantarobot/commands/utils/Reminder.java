@@ -20,13 +20,12 @@ import net.dv8tion.jda.core.entities.Guild;
 import net.dv8tion.jda.core.entities.Message;
 import net.dv8tion.jda.core.entities.User;
 import net.kodehawa.mantarobot.MantaroBot;
+import net.kodehawa.mantarobot.core.MantaroExecutors;
 import net.kodehawa.mantarobot.data.MantaroData;
 import net.kodehawa.mantarobot.db.entities.DBUser;
-import net.kodehawa.mantarobot.utils.Prometheus;
 import net.kodehawa.mantarobot.utils.commands.EmoteReference;
 
 import java.util.*;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -35,7 +34,7 @@ import java.util.function.Consumer;
 
 public class Reminder {
     public static final Map<String, List<Reminder>> CURRENT_REMINDERS = new HashMap<>();
-    private static final ScheduledExecutorService service = Executors.newScheduledThreadPool(1);
+    private static final ScheduledExecutorService service = MantaroExecutors.timer();
     private Future<?> scheduledReminder;
 
     public final String id;
@@ -46,10 +45,6 @@ public class Reminder {
     private final long offset;
     private final String guildId;
 
-    static {
-        Prometheus.THREAD_POOL_COLLECTOR.add("reminder", service);
-    }
-
     private Reminder(String id, String userId, String guildId, String reminder, long scheduledAt, long time, long offset) {
         this.id = id;
         this.userId = userId;
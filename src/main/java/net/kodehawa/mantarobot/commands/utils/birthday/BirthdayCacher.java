@@ -21,15 +21,14 @@ import com.rethinkdb.net.Cursor;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
+import net.kodehawa.mantarobot.core.MantaroExecutors;
 import net.kodehawa.mantarobot.data.MantaroData;
-import net.kodehawa.mantarobot.utils.Prometheus;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 import static com.rethinkdb.RethinkDB.r;
 
@@ -41,10 +40,9 @@ import static com.rethinkdb.RethinkDB.r;
 public class BirthdayCacher {
     public Map<String, BirthdayData> cachedBirthdays = new ConcurrentHashMap<>();
     public volatile boolean isDone;
-    private final ExecutorService executorService = Executors.newFixedThreadPool(1);
+    private final ExecutorService executorService = MantaroExecutors.fixed("birthday-cacher", 1);
 
     public BirthdayCacher() {
-        Prometheus.THREAD_POOL_COLLECTOR.add("birthday-cacher", executorService);
         log.info("Caching birthdays...");
         cache();
     }
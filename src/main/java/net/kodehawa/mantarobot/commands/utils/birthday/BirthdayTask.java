@@ -26,6 +26,8 @@ import net.dv8tion.jda.core.entities.Role;
 import net.dv8tion.jda.core.entities.TextChannel;
 import net.dv8tion.jda.core.utils.cache.SnowflakeCacheView;
 import net.kodehawa.mantarobot.MantaroBot;
+import net.kodehawa.mantarobot.core.OutboundQueue;
+import net.kodehawa.mantarobot.core.OutboundQueue.Priority;
 import net.kodehawa.mantarobot.data.MantaroData;
 import net.kodehawa.mantarobot.db.ManagedDatabase;
 import net.kodehawa.mantarobot.db.entities.helpers.GuildData;
@@ -119,7 +121,7 @@ public class BirthdayTask {
                                         guild.getController().addSingleRoleToMember(member, birthdayRole)
                                                 .reason("Birthday assigner. If you see this happening for every member of your server, or in unintended ways, please do ~>opts birthday disable")
                                                 .queue(s -> {
-                                                    channel.sendMessage(birthdayMessage).queue();
+                                                    OutboundQueue.send(channel, Priority.ANNOUNCEMENT, birthdayMessage);
                                                     birthdayCounter.labels(guild.getId()).inc();
                                                 }
                                         );
@@ -38,6 +38,8 @@ import net.kodehawa.mantarobot.core.modules.commands.base.Command;
 import net.kodehawa.mantarobot.core.modules.commands.base.CommandPermission;
 import net.kodehawa.mantarobot.core.modules.commands.i18n.I18nContext;
 import net.kodehawa.mantarobot.data.Config;
+import net.kodehawa.mantarobot.data.GuildSettings;
+import net.kodehawa.mantarobot.data.I18n;
 import net.kodehawa.mantarobot.data.MantaroData;
 import net.kodehawa.mantarobot.db.ManagedDatabase;
 import net.kodehawa.mantarobot.db.entities.DBGuild;
@@ -99,6 +101,9 @@ public class CommandRegistry {
         DBUser dbUser = managedDatabase.getUser(event.getAuthor());
         UserData userData = dbUser.getData();
         GuildData guildData = dbg.getData();
+        //We have both anyway, so keep the cached settings fresh.
+        GuildSettings.update(event.getGuild().getId(), guildData);
+        I18n.updateUserLanguage(event.getAuthor().getId(), userData.getLang());
 
         if (command == null) {
             CustomCmds.handle(cmdName, event, new I18nContext(guildData, userData), content);
@@ -199,6 +204,9 @@ public class CommandRegistry {
             }
         }
 
+        //Its replies go before anything else we want to send there.
+        OutboundQueue.interactive(event.getChannel().getIdLong());
+
         //COMMAND LOGGING
         long end = System.currentTimeMillis();
         commandCounter.labels(cmdName).inc();
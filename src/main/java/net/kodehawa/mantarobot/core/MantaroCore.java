@@ -18,7 +18,6 @@ package net.kodehawa.mantarobot.core;
 
 import br.com.brjdevs.java.utils.async.Async;
 import com.google.common.eventbus.EventBus;
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.github.lukehutch.fastclasspathscanner.FastClasspathScanner;
 import io.sentry.Sentry;
 import lombok.Getter;
@@ -33,14 +32,12 @@ import net.kodehawa.mantarobot.core.shard.ShardedMantaro;
 import net.kodehawa.mantarobot.data.Config;
 import net.kodehawa.mantarobot.options.annotations.Option;
 import net.kodehawa.mantarobot.options.event.OptionRegistryEvent;
-import net.kodehawa.mantarobot.utils.Prometheus;
 import net.kodehawa.mantarobot.utils.banner.BannerPrinter;
 
 import java.lang.annotation.Annotation;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 import static net.kodehawa.mantarobot.core.LoadState.*;
 
@@ -60,7 +57,7 @@ public class MantaroCore {
     @Getter
     private EventBus shardEventBus;
     @Getter
-    private ExecutorService commonExecutor = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("Mantaro-CommonExecutor Thread-%d").build());
+    private ExecutorService commonExecutor = MantaroExecutors.common();
     @Getter
     @Setter
     private static LoadState loadState = PRELOAD;
@@ -70,7 +67,6 @@ public class MantaroCore {
         this.useBanner = useBanner;
         this.useSentry = useSentry;
         this.isDebug = isDebug;
-        Prometheus.THREAD_POOL_COLLECTOR.add("mantaro-core-common-executor", commonExecutor);
     }
 
     public static boolean hasLoadedCompletely() {
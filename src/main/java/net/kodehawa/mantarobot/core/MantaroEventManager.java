@@ -16,30 +16,155 @@
 
 package net.kodehawa.mantarobot.core;
 
+import io.prometheus.client.Counter;
+import io.prometheus.client.Histogram;
 import lombok.extern.slf4j.Slf4j;
 import net.dv8tion.jda.core.events.Event;
-import net.dv8tion.jda.core.hooks.InterfacedEventManager;
+import net.dv8tion.jda.core.events.message.guild.GuildMessageReceivedEvent;
+import net.dv8tion.jda.core.hooks.EventListener;
+import net.dv8tion.jda.core.hooks.IEventManager;
+import net.kodehawa.mantarobot.core.listeners.FilteredEventListener;
 import net.kodehawa.mantarobot.core.listeners.events.ShardMonitorEvent;
 import org.slf4j.Logger;
 
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Event manager of a shard.
+ * <p>
+ * Works like JDA's InterfacedEventManager, but events only reach the listeners that want them: a {@link FilteredEventListener} only gets the event
+ * types it asks for. Which listeners get each event class is worked out the first time that class is seen (and again after a listener is
+ * registered or unregistered), so handling an event is a map lookup and a loop over the listeners that actually care about it.
+ */
 @Slf4j
-public class MantaroEventManager extends InterfacedEventManager {
+public class MantaroEventManager implements IEventManager {
+    private static final Counter events = Counter.build()
+            .name("jda_events").help("Events received, by type")
+            .labelNames("type")
+            .register();
+    private static final Histogram handlerTime = Histogram.build()
+            .name("event_handler_seconds").help("Time listeners spent handling an event, by listener and event type")
+            .labelNames("listener", "type")
+            .buckets(.00001, .0001, .0005, .001, .005, .01, .05, .1, .5, 1, 5)
+            .register();
+    private static final Histogram messageLag = Histogram.build()
+            .name("event_message_lag_seconds").help("Time between a message being sent and it reaching the listeners")
+            .buckets(.01, .05, .1, .25, .5, 1, 2.5, 5, 10, 30, 60)
+            .register();
+
+    private final List<Registration> listeners = new CopyOnWriteArrayList<>();
+    //Replaced (instead of cleared) when listeners change, so a handle() that's still using the old one can't put stale entries on the new one.
+    private volatile ConcurrentMap<Class<?>, Registration[]> dispatch = new ConcurrentHashMap<>();
     private long LAST_JDA_EVENT;
 
     public static Logger getLog() {
         return log;
     }
 
+    @Override
+    public void register(Object listener) {
+        if(!(listener instanceof EventListener))
+            throw new IllegalArgumentException("Listener must implement EventListener");
+
+        listeners.add(new Registration((EventListener) listener));
+        dispatch = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public void unregister(Object listener) {
+        listeners.removeIf(registration -> registration.listener == listener);
+        dispatch = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public List<Object> getRegisteredListeners() {
+        List<Object> registered = new ArrayList<>(listeners.size());
+        for(Registration registration : listeners) {
+            registered.add(registration.listener);
+        }
+
+        return Collections.unmodifiableList(registered);
+    }
+
     @Override
     public void handle(Event event) {
         if(!(event instanceof ShardMonitorEvent)) {
             LAST_JDA_EVENT = System.currentTimeMillis();
         }
 
-        super.handle(event);
+        if(event instanceof GuildMessageReceivedEvent) {
+            long sent = ((GuildMessageReceivedEvent) event).getMessage().getCreationTime().toInstant().toEpochMilli();
+            messageLag.observe(Math.max(0, LAST_JDA_EVENT - sent) / 1000D);
+        }
+
+        Class<?> type = event.getClass();
+        String typeName = name(type);
+        events.labels(typeName).inc();
+
+        ConcurrentMap<Class<?>, Registration[]> table = dispatch;
+        Registration[] targets = table.get(type);
+        if(targets == null) {
+            targets = listenersFor(type);
+            table.put(type, targets);
+        }
+
+        for(Registration registration : targets) {
+            long start = System.nanoTime();
+            try {
+                registration.listener.onEvent(event);
+            } catch(Throwable t) {
+                log.error("One of the EventListeners had an uncaught exception", t);
+            }
+
+            handlerTime.labels(registration.name, typeName).observe((System.nanoTime() - start) / 1e9);
+        }
     }
 
     public long getLastJDAEventTimeDiff() {
         return System.currentTimeMillis() - LAST_JDA_EVENT;
     }
+
+    //Anonymous classes don't have a simple name.
+    private static String name(Class<?> c) {
+        String name = c.getSimpleName();
+        return name.isEmpty() ? c.getName() : name;
+    }
+
+    private Registration[] listenersFor(Class<?> type) {
+        List<Registration> targets = new ArrayList<>();
+        for(Registration registration : listeners) {
+            if(registration.accepts(type))
+                targets.add(registration);
+        }
+
+        return targets.toArray(new Registration[0]);
+    }
+
+    private static final class Registration {
+        private final EventListener listener;
+        private final String name;
+        //null if it wants everything.
+        private final Set<Class<? extends Event>> types;
+
+        Registration(EventListener listener) {
+            this.listener = listener;
+            this.name = name(listener.getClass());
+            this.types = listener instanceof FilteredEventListener ? new HashSet<>(((FilteredEventListener) listener).getEventTypes()) : null;
+        }
+
+        boolean accepts(Class<?> type) {
+            if(types == null)
+                return true;
+
+            for(Class<? extends Event> accepted : types) {
+                if(accepted.isAssignableFrom(type))
+                    return true;
+            }
+
+            return false;
+        }
+    }
 }
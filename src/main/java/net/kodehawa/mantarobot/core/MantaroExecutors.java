@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2016-2018 David Alejandro Rubio Escares / Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro.  If not, see http://www.gnu.org/licenses/
+ */
+
+package net.kodehawa.mantarobot.core;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.prometheus.client.Gauge;
+import lombok.extern.slf4j.Slf4j;
+import net.kodehawa.mantarobot.data.Config;
+import net.kodehawa.mantarobot.data.MantaroData;
+import net.kodehawa.mantarobot.utils.InstrumentedScheduledThreadPoolExecutor;
+import net.kodehawa.mantarobot.utils.InstrumentedThreadPoolExecutor;
+import net.kodehawa.mantarobot.utils.Prometheus;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Central place where every thread pool of the bot is created.
+ * <p>
+ * All pools are named, bounded and registered on {@link Prometheus#THREAD_POOL_COLLECTOR} under their name. Asking twice for the same name returns
+ * the same pool, so classes don't need to keep the pool around on a static field (and a class being loaded twice can't leak a pool).
+ * They're instrumented too ({@link InstrumentedThreadPoolExecutor}/{@link InstrumentedScheduledThreadPoolExecutor}), so queue wait, run time and
+ * rejections get recorded per pool.
+ * <p>
+ * Every pool takes its maximum thread count out of a global budget ({@link Config#threadBudget}). If the budget runs out, the pool gets clamped to a
+ * single thread and we complain on the logs, instead of silently growing the thread count of the process.
+ * <p>
+ * Delayed and periodic work goes through {@link #timer()}. Timer tasks should be short: anything that blocks (database, HTTP, {@code complete()})
+ * should hop to a pool from the timer instead of running on it.
+ */
+@Slf4j
+public final class MantaroExecutors {
+    private static final Gauge threadBudget = Gauge.build()
+            .name("executor_thread_budget").help("Maximum amount of threads all the pools can use together")
+            .register();
+    private static final Gauge allocatedThreads = Gauge.build()
+            .name("executor_allocated_threads").help("Maximum amount of threads allocated to the created pools")
+            .register();
+
+    private static final Config config = MantaroData.config().get();
+    private static final ConcurrentMap<String, ExecutorService> POOLS = new ConcurrentHashMap<>();
+    private static final AtomicInteger ALLOCATED = new AtomicInteger();
+    private static final int BUDGET = Math.max(1, config.threadBudget);
+
+    //One timer for the whole process.
+    private static final ScheduledExecutorService TIMER = scheduled("timer", Math.max(1, config.timerPoolSize));
+    //Short-lived work that doesn't belong to any specific component.
+    private static final ExecutorService COMMON = fixed("common", Math.max(1, config.commonPoolSize));
+
+    static {
+        threadBudget.set(BUDGET);
+    }
+
+    private MantaroExecutors() {}
+
+    /**
+     * @return The process-wide timer. Use it for anything delayed or periodic, but keep the tasks short.
+     */
+    public static ScheduledExecutorService timer() {
+        return TIMER;
+    }
+
+    /**
+     * @return The process-wide pool for short-lived work that doesn't belong to any specific component.
+     */
+    public static ExecutorService common() {
+        return COMMON;
+    }
+
+    /**
+     * Gets or creates a bounded pool. Threads are created on demand up to {@code threads}, after that tasks wait on the queue.
+     * Idle threads die after a minute.
+     *
+     * @param name    The name of the pool. Used for metrics and thread names.
+     * @param threads The maximum amount of threads of this pool.
+     * @return The pool registered under this name.
+     */
+    public static ExecutorService fixed(String name, int threads) {
+        return POOLS.computeIfAbsent(name, n -> {
+            int size = reserve(n, threads);
+            ThreadPoolExecutor executor = new InstrumentedThreadPoolExecutor(n, size, size, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), factory(n));
+            executor.allowCoreThreadTimeOut(true);
+            Prometheus.THREAD_POOL_COLLECTOR.add(n, executor);
+            return executor;
+        });
+    }
+
+    /**
+     * Gets or creates a bounded scheduled pool. Only use this over {@link #timer()} when the scheduled tasks themselves are the ones doing the work
+     * (for example, JDA's ratelimit pool).
+     *
+     * @param name    The name of the pool. Used for metrics and thread names.
+     * @param threads The amount of threads of this pool.
+     * @return The pool registered under this name.
+     */
+    public static ScheduledExecutorService scheduled(String name, int threads) {
+        ExecutorService executor = POOLS.computeIfAbsent(name, n -> {
+            ScheduledThreadPoolExecutor scheduled = new InstrumentedScheduledThreadPoolExecutor(n, reserve(n, threads), factory(n));
+            //Cancelled tasks would otherwise sit on the queue until their delay runs out.
+            scheduled.setRemoveOnCancelPolicy(true);
+            Prometheus.THREAD_POOL_COLLECTOR.add(n, scheduled);
+            return scheduled;
+        });
+
+        if(!(executor instanceof ScheduledExecutorService))
+            throw new IllegalArgumentException("Pool " + name + " already exists and isn't a scheduled pool");
+
+        return (ScheduledExecutorService) executor;
+    }
+
+    public static int getThreadBudget() {
+        return BUDGET;
+    }
+
+    public static int getAllocatedThreads() {
+        return ALLOCATED.get();
+    }
+
+    private static int reserve(String name, int threads) {
+        if(threads < 1)
+            throw new IllegalArgumentException("Pool " + name + " needs at least one thread");
+
+        while(true) {
+            int current = ALLOCATED.get();
+            int size = Math.min(threads, BUDGET - current);
+            if(size < 1) {
+                //Over budget, but refusing to create the pool would break whatever asked for it.
+                size = 1;
+            }
+
+            if(ALLOCATED.compareAndSet(current, current + size)) {
+                if(size < threads) {
+                    log.error("Thread budget ({}) exhausted: pool {} asked for {} threads but got {}", BUDGET, name, threads, size);
+                }
+
+                allocatedThreads.set(current + size);
+                return size;
+            }
+        }
+    }
+
+    private static ThreadFactory factory(String name) {
+        return new ThreadFactoryBuilder()
+                .setNameFormat("Mantaro-" + name + " Thread-%d")
+                .build();
+    }
+}
@@ -0,0 +1,286 @@
+/*
+ * Copyright (C) 2016-2018 David Alejandro Rubio Escares / Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro.  If not, see http://www.gnu.org/licenses/
+ */
+
+package net.kodehawa.mantarobot.core;
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import io.prometheus.client.Histogram;
+import lombok.extern.slf4j.Slf4j;
+import net.dv8tion.jda.core.MessageBuilder;
+import net.dv8tion.jda.core.entities.Message;
+import net.dv8tion.jda.core.entities.MessageEmbed;
+import net.dv8tion.jda.core.entities.TextChannel;
+import net.kodehawa.mantarobot.MantaroBot;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * Messages we send on our own (not as a reply to a command), queued per channel so they never get in the way of command replies.
+ * <p>
+ * Command replies are still sent directly, but mark their channel as busy ({@link #interactive(long)}). Everything sent through here waits while the
+ * channel is busy (up to {@link #MAX_YIELD_MILLIS}), goes out one message at a time per channel and in order of {@link Priority}, so a channel's rate
+ * limit bucket is left for replies first. Each channel holds up to {@link #MAX_QUEUED} messages: past that, the oldest message of the least
+ * important priority gets dropped to make room (or the new one, if it's the least important). Messages sent with a key replace the one waiting
+ * with the same key, so only the latest now playing or level up message of a channel is sent.
+ */
+@Slf4j
+public final class OutboundQueue {
+    private static final Histogram delay = Histogram.build()
+            .name("outbound_queue_delay_seconds").help("Time messages waited on the outbound queue, by priority")
+            .labelNames("priority")
+            .buckets(.01, .05, .1, .5, 1, 2.5, 5, 10, 30, 60)
+            .register();
+    private static final Gauge queued = Gauge.build()
+            .name("outbound_queue_size").help("Messages waiting on the outbound queue, by priority")
+            .labelNames("priority")
+            .register();
+    private static final Counter dropped = Counter.build()
+            .name("outbound_queue_dropped").help("Messages dropped from the outbound queue, by priority and reason (full, replaced, unreachable)")
+            .labelNames("priority", "reason")
+            .register();
+
+    private static final int MAX_QUEUED = 50;
+    //How long a channel stays busy after a command runs on it.
+    private static final long BUSY_MILLIS = 3000;
+    //How long a message can wait for a busy channel before it's sent anyway.
+    private static final long MAX_YIELD_MILLIS = 10000;
+    //Last command on each channel, by slot. Channels sharing a slot just wait a bit more.
+    private static final AtomicLongArray LAST_INTERACTIVE = new AtomicLongArray(4096);
+    private static final ConcurrentMap<Long, ChannelQueue> CHANNELS = new ConcurrentHashMap<>();
+
+    private OutboundQueue() {}
+
+    /**
+     * Marks a channel as busy: a command is running on it, so its replies go before anything queued here.
+     */
+    public static void interactive(long channelId) {
+        LAST_INTERACTIVE.set(slot(channelId), System.nanoTime());
+    }
+
+    public static void send(TextChannel channel, Priority priority, String message) {
+        send(channel, priority, null, new MessageBuilder().append(message).build(), null, null);
+    }
+
+    public static void send(TextChannel channel, Priority priority, MessageEmbed embed) {
+        send(channel, priority, null, new MessageBuilder().setEmbed(embed).build(), null, null);
+    }
+
+    /**
+     * Queues a message.
+     *
+     * @param channel  The channel to send it to.
+     * @param priority How important it is compared to the rest of the messages queued for that channel.
+     * @param key      If not null, replaces the message waiting with the same key on this channel.
+     * @param message  The message.
+     * @param success  Called with the sent message. Can be null.
+     * @param failure  Called if sending it failed or it got dropped. Can be null.
+     */
+    public static void send(TextChannel channel, Priority priority, String key, Message message, Consumer<Message> success, Consumer<Throwable> failure) {
+        Entry entry = new Entry(priority, key, message, success, failure);
+        CHANNELS.compute(channel.getIdLong(), (id, queue) -> {
+            if(queue == null)
+                queue = new ChannelQueue(id);
+            queue.add(entry);
+            return queue;
+        });
+    }
+
+    private static int slot(long channelId) {
+        return (int) (channelId ^ (channelId >>> 22)) & (LAST_INTERACTIVE.length() - 1);
+    }
+
+    //Callbacks run on another thread: this gets called while holding locks, and they might queue another message.
+    private static void fail(Entry entry, String reason) {
+        dropped.labels(entry.priority.label, reason).inc();
+        if(entry.failure != null)
+            MantaroExecutors.common().execute(() -> entry.failure.accept(new RejectedExecutionException("Message " + reason + " on the outbound queue")));
+    }
+
+    public enum Priority {
+        //Moderation logs and actions.
+        MODERATION,
+        //Level ups, birthdays, music and poll announcements.
+        ANNOUNCEMENT,
+        //Everything else that goes to log channels.
+        LOG;
+
+        private final String label = name().toLowerCase();
+    }
+
+    private static final class ChannelQueue {
+        private final long channelId;
+        @SuppressWarnings("unchecked")
+        private final Deque<Entry>[] entries = new Deque[Priority.values().length];
+        private int size;
+        private boolean sending;
+
+        ChannelQueue(long channelId) {
+            this.channelId = channelId;
+            for(int i = 0; i < entries.length; i++) {
+                entries[i] = new ArrayDeque<>();
+            }
+        }
+
+        //Called inside CHANNELS.compute, so it can't race with this queue being removed.
+        synchronized void add(Entry entry) {
+            if(entry.key != null) {
+                Iterator<Entry> iterator = entries[entry.priority.ordinal()].iterator();
+                while(iterator.hasNext()) {
+                    Entry old = iterator.next();
+                    if(entry.key.equals(old.key)) {
+                        iterator.remove();
+                        size--;
+                        queued.labels(old.priority.label).dec();
+                        fail(old, "replaced");
+                        break;
+                    }
+                }
+            }
+
+            if(size >= MAX_QUEUED) {
+                int least = entries.length - 1;
+                while(entries[least].isEmpty())
+                    least--;
+
+                if(least < entry.priority.ordinal()) {
+                    //Everything queued is more important than this.
+                    fail(entry, "full");
+                    return;
+                }
+
+                Entry old = entries[least].poll();
+                size--;
+                queued.labels(old.priority.label).dec();
+                fail(old, "full");
+            }
+
+            entries[entry.priority.ordinal()].add(entry);
+            size++;
+            queued.labels(entry.priority.label).inc();
+
+            if(!sending) {
+                sending = true;
+                MantaroExecutors.common().execute(this::next);
+            }
+        }
+
+        private void next() {
+            Entry entry;
+            synchronized(this) {
+                entry = peek();
+                if(entry == null) {
+                    sending = false;
+                } else {
+                    long now = System.nanoTime();
+                    long busyFor = LAST_INTERACTIVE.get(slot(channelId)) + TimeUnit.MILLISECONDS.toNanos(BUSY_MILLIS) - now;
+                    long yieldedFor = now - entry.queued;
+                    if(busyFor > 0 && yieldedFor < TimeUnit.MILLISECONDS.toNanos(MAX_YIELD_MILLIS)) {
+                        MantaroExecutors.timer().schedule(() -> MantaroExecutors.common().execute(this::next), busyFor, TimeUnit.NANOSECONDS);
+                        return;
+                    }
+
+                    entries[entry.priority.ordinal()].poll();
+                    size--;
+                    queued.labels(entry.priority.label).dec();
+                    delay.labels(entry.priority.label).observe(yieldedFor / 1e9);
+                }
+            }
+
+            if(entry == null) {
+                //Outside the lock, add() takes them the other way around. If something got added meanwhile, it won't be idle.
+                CHANNELS.computeIfPresent(channelId, (id, queue) -> queue == this && isIdle() ? null : queue);
+                return;
+            }
+
+            TextChannel channel = MantaroBot.getInstance().getTextChannelById(channelId);
+            if(channel == null || !channel.canTalk()) {
+                fail(entry, "unreachable");
+                next();
+                return;
+            }
+
+            try {
+                channel.sendMessage(entry.message).queue(
+                        message -> done(() -> {
+                            if(entry.success != null)
+                                entry.success.accept(message);
+                        }),
+                        error -> done(() -> {
+                            if(entry.failure != null)
+                                entry.failure.accept(error);
+                        })
+                );
+            } catch(Exception e) {
+                //Lost permissions between the check and the send.
+                done(() -> {
+                    if(entry.failure != null)
+                        entry.failure.accept(e);
+                });
+            }
+        }
+
+        //Runs the callback of a sent message and moves on to the next one, even if the callback blew up. Otherwise the channel would be stuck.
+        private void done(Runnable callback) {
+            try {
+                callback.run();
+            } catch(Exception e) {
+                log.error("Error running the callback of a message sent to channel {}", channelId, e);
+            } finally {
+                next();
+            }
+        }
+
+        private Entry peek() {
+            for(Deque<Entry> queue : entries) {
+                Entry entry = queue.peek();
+                if(entry != null)
+                    return entry;
+            }
+
+            return null;
+        }
+
+        private synchronized boolean isIdle() {
+            return size == 0 && !sending;
+        }
+    }
+
+    private static final class Entry {
+        private final Priority priority;
+        private final String key;
+        private final Message message;
+        private final Consumer<Message> success;
+        private final Consumer<Throwable> failure;
+        private final long queued = System.nanoTime();
+
+        Entry(Priority priority, String key, Message message, Consumer<Message> success, Consumer<Throwable> failure) {
+            this.priority = priority;
+            this.key = key;
+            this.message = message;
+            this.failure = failure;
+            this.success = success;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2016-2018 David Alejandro Rubio Escares / Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro.  If not, see http://www.gnu.org/licenses/
+ */
+
+package net.kodehawa.mantarobot.core.listeners;
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import io.prometheus.client.Histogram;
+import lombok.extern.slf4j.Slf4j;
+import net.dv8tion.jda.core.entities.Guild;
+import net.dv8tion.jda.core.entities.Member;
+import net.dv8tion.jda.core.entities.Role;
+import net.kodehawa.mantarobot.MantaroBot;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gives the autorole to new members, one request at a time per guild.
+ * <p>
+ * Queueing every role add straight on JDA makes a raid pile hundreds of requests on the guild's rate limit, and everything else we do on that
+ * guild waits behind them. Here each guild only has one request in flight and the rest wait on its queue, up to {@link #MAX_PENDING} members.
+ * Past that, members don't get the role (and are counted on {@code autorole_dropped}).
+ */
+@Slf4j
+public final class AutoroleQueue {
+    private static final Gauge pending = Gauge.build()
+            .name("autorole_pending").help("Members waiting to get the autorole")
+            .register();
+    private static final Histogram wait = Histogram.build()
+            .name("autorole_wait_seconds").help("Time between a member joining and getting the autorole request sent")
+            .buckets(.1, .5, 1, 2.5, 5, 10, 30, 60, 120)
+            .register();
+    private static final Counter dropped = Counter.build()
+            .name("autorole_dropped").help("Members that didn't get the autorole because their guild had too many waiting")
+            .register();
+
+    private static final int MAX_PENDING = 1000;
+    private static final ConcurrentMap<Long, AutoroleQueue> GUILDS = new ConcurrentHashMap<>();
+
+    private final long guildId;
+    private final Queue<Entry> entries = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private AutoroleQueue(long guildId) {
+        this.guildId = guildId;
+    }
+
+    /**
+     * Queues giving a role to a member.
+     *
+     * @return False if the guild has too many members waiting already.
+     */
+    public static boolean add(Member member, Role role) {
+        return GUILDS.computeIfAbsent(member.getGuild().getIdLong(), AutoroleQueue::new).add(new Entry(member.getUser().getIdLong(), role.getIdLong()));
+    }
+
+    private boolean add(Entry entry) {
+        if(size.incrementAndGet() > MAX_PENDING) {
+            size.decrementAndGet();
+            dropped.inc();
+            return false;
+        }
+
+        pending.inc();
+        entries.add(entry);
+        next();
+        return true;
+    }
+
+    private void next() {
+        if(!running.compareAndSet(false, true))
+            return;
+
+        Entry entry;
+        while((entry = entries.poll()) != null) {
+            size.decrementAndGet();
+            pending.dec();
+            wait.observe((System.nanoTime() - entry.queued) / 1e9);
+
+            //Things might have changed while it waited: the member left, the role was deleted or we can't give it anymore.
+            Guild guild = MantaroBot.getInstance().getGuildById(guildId);
+            if(guild == null)
+                continue;
+            Member member = guild.getMemberById(entry.userId);
+            Role role = guild.getRoleById(entry.roleId);
+            if(member == null || role == null || !guild.getSelfMember().canInteract(role))
+                continue;
+
+            try {
+                guild.getController().addSingleRoleToMember(member, role)
+                        .reason("Autorole assigner.")
+                        .queue(success -> done(), failure -> done());
+                return;
+            } catch(Exception e) {
+                //Missing permissions, most likely.
+                log.debug("Couldn't give autorole on guild {}: {}", guildId, e.toString());
+            }
+        }
+
+        running.set(false);
+        //Something could've been added after the loop ended but before we were done.
+        if(!entries.isEmpty())
+            next();
+        else
+            GUILDS.remove(guildId, this);
+    }
+
+    private void done() {
+        running.set(false);
+        next();
+    }
+
+    private static final class Entry {
+        private final long userId;
+        private final long roleId;
+        private final long queued = System.nanoTime();
+
+        Entry(long userId, long roleId) {
+            this.userId = userId;
+            this.roleId = roleId;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright (C) 2016-2018 David Alejandro Rubio Escares / Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro.  If not, see http://www.gnu.org/licenses/
+ */
+
+package net.kodehawa.mantarobot.core.listeners;
+
+import net.dv8tion.jda.core.events.Event;
+import net.dv8tion.jda.core.hooks.EventListener;
+
+import java.util.Set;
+
+/**
+ * An {@link EventListener} that only cares about some events.
+ * {@link net.kodehawa.mantarobot.core.MantaroEventManager} only gives it events that are instances of one of its event types, so it doesn't need to
+ * see (and skip) every other event the gateway sends. Listeners that don't implement this still get every event.
+ */
+public interface FilteredEventListener extends EventListener {
+    /**
+     * @return The events this listener wants. Subclasses of them are included. This is only read when the listener is registered.
+     */
+    Set<Class<? extends Event>> getEventTypes();
+}
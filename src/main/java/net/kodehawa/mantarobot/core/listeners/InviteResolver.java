@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2016-2018 David Alejandro Rubio Escares / Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro.  If not, see http://www.gnu.org/licenses/
+ */
+
+package net.kodehawa.mantarobot.core.listeners;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import io.prometheus.client.Histogram;
+import lombok.extern.slf4j.Slf4j;
+import net.dv8tion.jda.core.JDA;
+import net.dv8tion.jda.core.entities.Invite;
+import net.dv8tion.jda.core.exceptions.ErrorResponseException;
+import net.dv8tion.jda.core.requests.ErrorResponse;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Resolves invite codes to the guild they point to, without blocking any thread.
+ * <p>
+ * Resolved and unresolvable codes are cached (the latter for less time, as they're usually expired or mistyped invites), and a code that's already
+ * being resolved isn't asked for again. Errors that say nothing about the invite (rate limits, Discord having issues, network errors) only fail
+ * the lookups waiting on that request, the next one asks again: a raid posting the same invite a hundred times makes a single request. At most {@link #MAX_CONCURRENT}
+ * requests run at once and up to {@link #MAX_PENDING} more wait for their turn. Past that, invites are treated as if they pointed to another guild,
+ * same as when resolving one fails.
+ */
+@Slf4j
+public final class InviteResolver {
+    private static final Histogram resolveLatency = Histogram.build()
+            .name("invite_resolve_seconds").help("Time it takes to resolve an invite, including the time it waited for its turn")
+            .register();
+    private static final Counter lookups = Counter.build()
+            .name("invite_lookups").help("Invite lookups, by result (hit, negative_hit, in_flight, miss, rejected)")
+            .labelNames("result")
+            .register();
+    private static final Gauge inFlight = Gauge.build()
+            .name("invite_resolves_in_flight").help("Invites being resolved or waiting to be resolved")
+            .register();
+
+    private static final int MAX_CONCURRENT = 8;
+    private static final int MAX_PENDING = 500;
+    //Value of codes we couldn't resolve (invalid, expired, or an invite to a group DM).
+    private static final long UNRESOLVABLE = -1L;
+
+    private static final Cache<String, Long> RESOLVED = CacheBuilder.newBuilder()
+            .maximumSize(10000)
+            .expireAfterWrite(6, TimeUnit.HOURS)
+            .build();
+    private static final Cache<String, Long> UNRESOLVED = CacheBuilder.newBuilder()
+            .maximumSize(10000)
+            .expireAfterWrite(10, TimeUnit.MINUTES)
+            .build();
+    private static final ConcurrentMap<String, CompletableFuture<Long>> IN_FLIGHT = new ConcurrentHashMap<>();
+    private static final Queue<Runnable> PENDING = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger pendingCount = new AtomicInteger();
+    private static final Semaphore permits = new Semaphore(MAX_CONCURRENT);
+
+    private InviteResolver() {}
+
+    /**
+     * Checks if any of the invites points to a guild other than this one.
+     *
+     * @param jda     The JDA instance to resolve them with.
+     * @param guildId The guild the invites were posted on.
+     * @param codes   The invite codes.
+     * @return A future completed with true if any of them points to another guild or couldn't be resolved.
+     */
+    public static CompletableFuture<Boolean> pointsElsewhere(JDA jda, long guildId, List<String> codes) {
+        if(codes.isEmpty())
+            return CompletableFuture.completedFuture(false);
+
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        AtomicInteger remaining = new AtomicInteger(codes.size());
+        for(String code : codes) {
+            resolve(jda, code).whenComplete((guild, error) -> {
+                if(error != null || guild != guildId) {
+                    result.complete(true);
+                } else if(remaining.decrementAndGet() == 0) {
+                    result.complete(false);
+                }
+            });
+        }
+
+        return result;
+    }
+
+    /**
+     * @return A future completed with the id of the guild the invite points to, or -1 if it couldn't be resolved.
+     */
+    public static CompletableFuture<Long> resolve(JDA jda, String code) {
+        Long guild = RESOLVED.getIfPresent(code);
+        if(guild != null) {
+            lookups.labels("hit").inc();
+            return CompletableFuture.completedFuture(guild);
+        }
+
+        if(UNRESOLVED.getIfPresent(code) != null) {
+            lookups.labels("negative_hit").inc();
+            return CompletableFuture.completedFuture(UNRESOLVABLE);
+        }
+
+        CompletableFuture<Long> future = new CompletableFuture<>();
+        CompletableFuture<Long> running = IN_FLIGHT.putIfAbsent(code, future);
+        if(running != null) {
+            lookups.labels("in_flight").inc();
+            return running;
+        }
+
+        if(pendingCount.incrementAndGet() > MAX_PENDING) {
+            pendingCount.decrementAndGet();
+            lookups.labels("rejected").inc();
+            IN_FLIGHT.remove(code, future);
+            future.complete(UNRESOLVABLE);
+            return future;
+        }
+
+        lookups.labels("miss").inc();
+        inFlight.inc();
+        long start = System.nanoTime();
+        PENDING.add(() -> {
+            try {
+                Invite.resolve(jda, code).queue(
+                        invite -> done(code, future, start, invite.getGuild() == null ? UNRESOLVABLE : invite.getGuild().getIdLong(), true),
+                        error -> {
+                            log.debug("Couldn't resolve invite {}: {}", code, error.toString());
+                            //Only unknown invites are really unresolvable, anything else might work on the next try.
+                            boolean unknown = error instanceof ErrorResponseException &&
+                                    ((ErrorResponseException) error).getErrorResponse() == ErrorResponse.UNKNOWN_INVITE;
+                            done(code, future, start, UNRESOLVABLE, unknown);
+                        }
+                );
+            } catch(Exception e) {
+                //Shutting down, most likely.
+                log.error("Error queueing invite resolve", e);
+                done(code, future, start, UNRESOLVABLE, false);
+            }
+        });
+        drain();
+        return future;
+    }
+
+    private static void done(String code, CompletableFuture<Long> future, long start, long guild, boolean cache) {
+        if(cache)
+            (guild == UNRESOLVABLE ? UNRESOLVED : RESOLVED).put(code, guild);
+        IN_FLIGHT.remove(code, future);
+        resolveLatency.observe((System.nanoTime() - start) / 1e9);
+        inFlight.dec();
+        permits.release();
+        future.complete(guild);
+        drain();
+    }
+
+    //Starts waiting requests while there are permits left.
+    private static void drain() {
+        while(!PENDING.isEmpty() && permits.tryAcquire()) {
+            Runnable next = PENDING.poll();
+            if(next == null) {
+                permits.release();
+                continue;
+            }
+
+            pendingCount.decrementAndGet();
+            next.run();
+        }
+    }
+}
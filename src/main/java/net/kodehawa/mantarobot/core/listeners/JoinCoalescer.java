@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2016-2018 David Alejandro Rubio Escares / Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro.  If not, see http://www.gnu.org/licenses/
+ */
+
+package net.kodehawa.mantarobot.core.listeners;
+
+import io.prometheus.client.Histogram;
+import lombok.extern.slf4j.Slf4j;
+import net.dv8tion.jda.core.events.guild.member.GuildMemberJoinEvent;
+import net.kodehawa.mantarobot.core.MantaroExecutors;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Groups member joins by guild, so a raid or a mass invite is handled a few times a second instead of once per member.
+ * <p>
+ * The first join of a guild is handled right away (a normal guild never waits), and opens a window of {@link #WINDOW_MILLIS}: joins on that guild
+ * during the window are collected and handled together when it closes. The window stays open while joins keep coming.
+ */
+@Slf4j
+public class JoinCoalescer {
+    private static final Histogram batchSize = Histogram.build()
+            .name("join_batch_size").help("Member joins handled together")
+            .buckets(1, 2, 5, 10, 25, 50, 100, 250)
+            .register();
+
+    private static final long WINDOW_MILLIS = 2000;
+
+    private final ConcurrentMap<Long, List<GuildMemberJoinEvent>> windows = new ConcurrentHashMap<>();
+    private final Executor executor;
+    private final Consumer<List<GuildMemberJoinEvent>> handler;
+
+    /**
+     * @param executor Where the joins are handled.
+     * @param handler  Handles a batch of joins, all from the same guild.
+     */
+    public JoinCoalescer(Executor executor, Consumer<List<GuildMemberJoinEvent>> handler) {
+        this.executor = executor;
+        this.handler = handler;
+    }
+
+    public void add(GuildMemberJoinEvent event) {
+        long guildId = event.getGuild().getIdLong();
+        boolean[] first = new boolean[1];
+        windows.compute(guildId, (id, waiting) -> {
+            if(waiting == null) {
+                first[0] = true;
+                schedule(id);
+                return new ArrayList<>();
+            }
+
+            waiting.add(event);
+            return waiting;
+        });
+
+        if(first[0])
+            handle(Collections.singletonList(event));
+    }
+
+    private void schedule(long guildId) {
+        MantaroExecutors.timer().schedule(() -> close(guildId), WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private void close(long guildId) {
+        List<GuildMemberJoinEvent> events = new ArrayList<>();
+        windows.computeIfPresent(guildId, (id, waiting) -> {
+            if(waiting.isEmpty())
+                return null;
+
+            //Still joining, keep the window open.
+            events.addAll(waiting);
+            schedule(id);
+            return new ArrayList<>();
+        });
+
+        if(!events.isEmpty())
+            handle(events);
+    }
+
+    private void handle(List<GuildMemberJoinEvent> events) {
+        batchSize.observe(events.size());
+        executor.execute(() -> {
+            try {
+                handler.accept(events);
+            } catch(Exception e) {
+                log.error("Error handling {} joins", events.size(), e);
+            }
+        });
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2016-2018 David Alejandro Rubio Escares / Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro.  If not, see http://www.gnu.org/licenses/
+ */
+
+package net.kodehawa.mantarobot.core.listeners;
+
+import net.kodehawa.mantarobot.data.GuildSettings;
+import net.kodehawa.mantarobot.db.entities.helpers.GuildData;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Link protection settings of a guild, kept in memory with the rest of its {@link GuildSettings} so checking a message doesn't read the guild from
+ * the database.
+ * <p>
+ * Almost no guild has link protection on, and those share a single {@link #DISABLED} instance, so the cache stays small.
+ */
+public final class LinkProtection {
+    public static final LinkProtection DISABLED = new LinkProtection(false, Collections.emptySet(), Collections.emptySet(), null);
+
+    //discord.gg/code, discord.me/code, discord.io/code and discordapp.com/invite/code, also written with " dot " and spaces around the slashes.
+    private static final Pattern INVITE = Pattern.compile(
+            "discord(?:app(?:\\.|\\s*?dot\\s*?)com\\s*?/\\s*?invite\\s*?/\\s*?|(?:\\.|\\s*?dot\\s*?)(gg|me|io)\\s*?/\\s*?)([a-zA-Z0-9\\-_]+)"
+    );
+    //Every code on a message is checked (up to this many), so an invite can't hide behind an invite to the guild itself.
+    private static final int MAX_CODES = 5;
+
+    private final boolean enabled;
+    private final Set<String> allowedChannels;
+    private final Set<String> allowedUsers;
+    private final String logChannel;
+
+    private LinkProtection(boolean enabled, Set<String> allowedChannels, Set<String> allowedUsers, String logChannel) {
+        this.enabled = enabled;
+        this.allowedChannels = allowedChannels;
+        this.allowedUsers = allowedUsers;
+        this.logChannel = logChannel;
+    }
+
+    public static LinkProtection of(String guildId) {
+        return GuildSettings.of(guildId).getLinkProtection();
+    }
+
+    /**
+     * @return The link protection settings on this guild data. Use {@link GuildSettings#update(String, GuildData)} to remember them.
+     */
+    public static LinkProtection from(GuildData data) {
+        return data.isLinkProtection() ? new LinkProtection(true,
+                Collections.unmodifiableSet(new HashSet<>(data.getLinkProtectionAllowedChannels())),
+                Collections.unmodifiableSet(new HashSet<>(data.getLinkProtectionAllowedUsers())),
+                data.getGuildLogChannel()) : DISABLED;
+    }
+
+    /**
+     * @return Whether a message sent by this user on this channel has to be checked for invites.
+     */
+    public boolean appliesTo(String channelId, String userId) {
+        return enabled && !allowedChannels.contains(channelId) && !allowedUsers.contains(userId) && !channelId.equals(logChannel);
+    }
+
+    /**
+     * Looks for invites on a message, on a single pass.
+     *
+     * @return null if there's none, an empty list if there's an invite to a third party site (discord.me, discord.io), or the codes of the Discord
+     * invites otherwise, which still have to be resolved to know if they point to another guild.
+     */
+    public static List<String> findInvites(String message) {
+        //Every invite has this on it, so most messages never reach the regex.
+        if(!message.contains("discord"))
+            return null;
+
+        List<String> codes = null;
+        Matcher m = INVITE.matcher(message);
+        while(m.find()) {
+            String host = m.group(1);
+            if(host != null && !host.equals("gg"))
+                return Collections.emptyList();
+
+            if(codes == null)
+                codes = new ArrayList<>(1);
+            String code = m.group(2);
+            if(codes.size() < MAX_CODES && !codes.contains(code))
+                codes.add(code);
+        }
+
+        return codes;
+    }
+}
@@ -16,11 +16,8 @@
 
 package net.kodehawa.mantarobot.core.listeners;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import io.prometheus.client.Counter;
-import io.prometheus.client.Gauge;
 import lombok.extern.slf4j.Slf4j;
 import net.dv8tion.jda.core.JDA;
 import net.dv8tion.jda.core.Permission;
@@ -39,22 +36,23 @@ import net.dv8tion.jda.core.events.message.guild.GuildMessageDeleteEvent;
 import net.dv8tion.jda.core.events.message.guild.GuildMessageReceivedEvent;
 import net.dv8tion.jda.core.events.message.guild.GuildMessageUpdateEvent;
 import net.dv8tion.jda.core.exceptions.PermissionException;
-import net.dv8tion.jda.core.hooks.EventListener;
 import net.kodehawa.mantarobot.MantaroBot;
 import net.kodehawa.mantarobot.commands.custom.EmbedJSON;
 import net.kodehawa.mantarobot.commands.custom.legacy.DynamicModifiers;
 import net.kodehawa.mantarobot.commands.info.stats.manager.GuildStatsManager;
 import net.kodehawa.mantarobot.commands.info.stats.manager.GuildStatsManager.LoggedEvent;
-import net.kodehawa.mantarobot.core.MantaroCore;
 import net.kodehawa.mantarobot.core.listeners.entities.CachedMessage;
 import net.kodehawa.mantarobot.core.listeners.events.ShardMonitorEvent;
 import net.kodehawa.mantarobot.core.shard.MantaroShard;
+import net.kodehawa.mantarobot.core.shard.StatusAggregator;
+import net.kodehawa.mantarobot.data.GuildSettings;
 import net.kodehawa.mantarobot.data.MantaroData;
 import net.kodehawa.mantarobot.db.ManagedDatabase;
 import net.kodehawa.mantarobot.db.entities.DBGuild;
 import net.kodehawa.mantarobot.db.entities.DBUser;
 import net.kodehawa.mantarobot.db.entities.PremiumKey;
 import net.kodehawa.mantarobot.db.entities.helpers.GuildData;
+import net.kodehawa.mantarobot.log.LogAggregator;
 import net.kodehawa.mantarobot.log.LogUtils;
 import net.kodehawa.mantarobot.utils.SentryHelper;
 import net.kodehawa.mantarobot.utils.commands.EmoteReference;
@@ -64,27 +62,27 @@ import java.security.SecureRandom;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Optional;
-import java.util.concurrent.ExecutionException;
-import java.util.regex.Matcher;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import static net.kodehawa.mantarobot.utils.Utils.*;
 
 @Slf4j
-public class MantaroListener implements EventListener {
-    private static final Cache<String, Long> INVITES = CacheBuilder.newBuilder()
-            .maximumSize(5500)
-            .build();
+public class MantaroListener implements FilteredEventListener {
+    private static final Set<Class<? extends Event>> EVENT_TYPES = new HashSet<>(Arrays.asList(
+            ShardMonitorEvent.class, GuildMessageReceivedEvent.class, GuildMemberJoinEvent.class, GuildMemberLeaveEvent.class,
+            GuildMemberRoleAddEvent.class, GuildMessageUpdateEvent.class, GuildMessageDeleteEvent.class, GuildUnbanEvent.class, GuildBanEvent.class,
+            GuildJoinEvent.class, GuildLeaveEvent.class, StatusChangeEvent.class, DisconnectEvent.class, ExceptionEvent.class, HttpRequestEvent.class,
+            ReadyEvent.class, ReconnectedEvent.class, ResumedEvent.class
+    ));
 
     //START OF METRIC COLLECTORS DECLARATION.
-    private static final Gauge guildCount = Gauge.build()
-            .name("guilds").help("Guild Count")
-            .register();
-    private static final Gauge userCount = Gauge.build()
-            .name("users").help("User Count")
-            .register();
     private static final Counter httpRequests = Counter.build()
             .name("http_requests").help("Successful HTTP Requests (JDA)")
             .register();
@@ -109,37 +107,29 @@ public class MantaroListener implements EventListener {
 
     //END OF METRIC CONNECTORS DECLARATION.
 
+    //Members mentioned on a single welcome message when several join at once.
+    private static final int WELCOMES_PER_MESSAGE = 25;
     private static int logTotal = 0;
     private final ManagedDatabase db = MantaroData.db();
     private final DateFormat df = new SimpleDateFormat("HH:mm:ss");
     private final MantaroShard shard;
     private final int shardId;
     private final SecureRandom rand = new SecureRandom();
+    private final JoinCoalescer joins;
 
     public MantaroListener(int shardId, MantaroShard shard) {
         this.shardId = shardId;
         this.shard = shard;
+        this.joins = new JoinCoalescer(shard.getThreadPool(), this::onUserJoins);
     }
 
     public static int getLogTotalInt() {
         return logTotal;
     }
 
-    private static boolean hasInvite(JDA jda, Guild guild, String message) {
-        if (THIRD_PARTY_INVITE.matcher(message).find())
-            return true;
-        Matcher m = DISCORD_INVITE_2.matcher(message);
-        if (!m.find())
-            return false;
-
-        String invite = m.group(0);
-        String code = invite.substring(invite.lastIndexOf('/') + 1).trim();
-        try {
-            return INVITES.get(code, () -> Invite.resolve(jda, code).complete().getGuild().getIdLong()) != guild.getIdLong();
-        } catch (ExecutionException e) {
-            log.error("Error running invite validator", e);
-            return DISCORD_INVITE.matcher(message).find();
-        }
+    @Override
+    public Set<Class<? extends Event>> getEventTypes() {
+        return EVENT_TYPES;
     }
 
     @Override
@@ -159,7 +149,7 @@ public class MantaroListener implements EventListener {
         }
 
         if (event instanceof GuildMemberJoinEvent) {
-            shard.getThreadPool().execute(() -> onUserJoin((GuildMemberJoinEvent) event));
+            joins.add((GuildMemberJoinEvent) event);
             return;
         }
 
@@ -202,23 +192,13 @@ public class MantaroListener implements EventListener {
                 return;
 
             onJoin(e);
-
-            if (MantaroCore.hasLoadedCompletely()) {
-                guildCount.set(MantaroBot.getInstance().getGuildCache().size());
-                userCount.set(MantaroBot.getInstance().getUserCache().size());
-            }
-
+            updateCounts(event.getJDA());
             return;
         }
 
         if (event instanceof GuildLeaveEvent) {
             onLeave((GuildLeaveEvent) event);
-
-            if (MantaroCore.hasLoadedCompletely()) {
-                guildCount.set(MantaroBot.getInstance().getGuildCache().size());
-                userCount.set(MantaroBot.getInstance().getUserCache().size());
-            }
-
+            updateCounts(event.getJDA());
             return;
         }
 
@@ -244,8 +224,14 @@ public class MantaroListener implements EventListener {
             return;
         }
 
+        if (event instanceof ReadyEvent) {
+            updateCounts(event.getJDA());
+            return;
+        }
+
         if (event instanceof ReconnectedEvent) {
             shardEvent.labels("reconnect").inc();
+            updateCounts(event.getJDA());
             return;
         }
 
@@ -301,20 +287,35 @@ public class MantaroListener implements EventListener {
         }
     }
 
+    /**
+     * Re-samples the guild count of this shard on the {@link StatusAggregator}, which also updates the global gauge.
+     * This used to build the union of every shard cache on every guild join/leave.
+     */
+    private void updateCounts(JDA jda) {
+        MantaroBot bot = MantaroBot.getInstance();
+        if (bot == null || bot.getShardedMantaro() == null)
+            return;
+
+        bot.getShardedMantaro().getStatusAggregator().update(shardId, jda);
+    }
+
     private void logBan(GuildBanEvent event) {
         String hour = df.format(new Date(System.currentTimeMillis()));
         String logChannel = MantaroData.db().getGuild(event.getGuild()).getData().getGuildLogChannel();
         if (logChannel != null) {
             TextChannel tc = event.getGuild().getTextChannelById(logChannel);
             if (tc != null) {
-                tc.sendMessage
-                        (EmoteReference.WARNING + "`[" + hour + "]` " + event.getUser().getName() + "#" + event.getUser().getDiscriminator() + " just got banned.").queue();
+                LogAggregator.log(tc, EmoteReference.WARNING + "`[" + hour + "]` " + event.getUser().getName() + "#" + event.getUser().getDiscriminator() + " just got banned.");
                 logTotal++;
             }
         }
     }
 
     private void logDelete(GuildMessageDeleteEvent event) {
+        //No log channel, nothing to do (and nothing was cached for it).
+        if (!GuildSettings.of(event.getGuild().getId()).isLogging())
+            return;
+
         try {
             String hour = df.format(new Date(System.currentTimeMillis()));
             String logChannel = MantaroData.db().getGuild(event.getGuild()).getData().getGuildLogChannel();
@@ -322,9 +323,11 @@ public class MantaroListener implements EventListener {
             if (logChannel != null) {
                 TextChannel tc = event.getGuild().getTextChannelById(logChannel);
                 if (tc == null) return;
-                CachedMessage deletedMessage = shard.getMessageCache().get(event.getMessageId(), Optional::empty).orElse(null);
+                CachedMessage deletedMessage = shard.getMessageCache().get(event.getMessageIdLong());
+                //It's gone, we won't need it anymore.
+                shard.getMessageCache().remove(event.getMessageIdLong());
 
-                if (deletedMessage != null && !deletedMessage.getContent().isEmpty() && !event.getChannel().getId().equals(logChannel) && !deletedMessage.getAuthor().getId().equals(event.getJDA().getSelfUser().getId())) {
+                if (deletedMessage != null && deletedMessage.hasContent() && !event.getChannel().getId().equals(logChannel) && !deletedMessage.getAuthor().getId().equals(event.getJDA().getSelfUser().getId())) {
                     if (MantaroData.db().getGuild(event.getGuild()).getData().getModlogBlacklistedPeople().contains(deletedMessage.getAuthor().getId())) {
                         return;
                     }
@@ -334,8 +337,8 @@ public class MantaroListener implements EventListener {
                     }
 
                     logTotal++;
-                    tc.sendMessage(String.format(EmoteReference.WARNING + "`[%s]` Message created by **%s#%s** in channel **%s** was deleted.\n" +
-                            "```diff\n-%s```", hour, deletedMessage.getAuthor().getName(), deletedMessage.getAuthor().getDiscriminator(), event.getChannel().getName(), deletedMessage.getContent().replace("```", ""))).queue();
+                    LogAggregator.log(tc, String.format(EmoteReference.WARNING + "`[%s]` Message created by **%s#%s** in channel **%s** was deleted.\n" +
+                            "```diff\n-%s```", hour, deletedMessage.getAuthor().getName(), deletedMessage.getAuthor().getDiscriminator(), event.getChannel().getName(), deletedMessage.getContent().replace("```", "")));
                 }
             }
         } catch (Exception e) {
@@ -346,6 +349,9 @@ public class MantaroListener implements EventListener {
     }
 
     private void logEdit(GuildMessageUpdateEvent event) {
+        if (!GuildSettings.of(event.getGuild().getId()).isLogging())
+            return;
+
         try {
             String hour = df.format(new Date(System.currentTimeMillis()));
             String logChannel = MantaroData.db().getGuild(event.getGuild()).getData().getGuildLogChannel();
@@ -354,9 +360,9 @@ public class MantaroListener implements EventListener {
                 TextChannel tc = event.getGuild().getTextChannelById(logChannel);
                 if (tc == null) return;
                 User author = event.getAuthor();
-                CachedMessage editedMessage = shard.getMessageCache().get(event.getMessage().getId(), Optional::empty).orElse(null);
+                CachedMessage editedMessage = shard.getMessageCache().get(event.getMessageIdLong());
 
-                if (editedMessage != null && !editedMessage.getContent().isEmpty() && !event.getChannel().getId().equals(logChannel)) {
+                if (editedMessage != null && editedMessage.hasContent() && !event.getChannel().getId().equals(logChannel)) {
 
                     if (MantaroData.db().getGuild(event.getGuild()).getData().getLogExcludedChannels().contains(event.getChannel().getId())) {
                         return;
@@ -366,13 +372,13 @@ public class MantaroListener implements EventListener {
                         return;
                     }
 
-                    shard.getMessageCache().put(event.getMessage().getId(), Optional.of(new CachedMessage(event.getAuthor().getIdLong(), event.getMessage().getContentDisplay())));
+                    shard.getMessageCache().put(event.getGuild().getId(), event.getMessageIdLong(), event.getAuthor().getIdLong(), event.getMessage().getContentDisplay());
                     //Don't log if content is equal but update in cache (cc: message is still relevant).
                     if(event.getMessage().getContentDisplay().equals(editedMessage.getContent()))
                         return;
 
-                    tc.sendMessage(String.format(EmoteReference.WARNING + "`[%s]` Message created by **%s#%s** in channel **%s** was modified.\n```diff\n-%s\n+%s```",
-                            hour, author.getName(), author.getDiscriminator(), event.getChannel().getName(), editedMessage.getContent().replace("```", ""), event.getMessage().getContentDisplay().replace("```", ""))).queue();
+                    LogAggregator.log(tc, String.format(EmoteReference.WARNING + "`[%s]` Message created by **%s#%s** in channel **%s** was modified.\n```diff\n-%s\n+%s```",
+                            hour, author.getName(), author.getDiscriminator(), event.getChannel().getName(), editedMessage.getContent().replace("```", ""), event.getMessage().getContentDisplay().replace("```", "")));
 
                     logTotal++;
                 }
@@ -403,7 +409,7 @@ public class MantaroListener implements EventListener {
             if (logChannel != null) {
                 TextChannel tc = event.getGuild().getTextChannelById(logChannel);
                 if (tc != null) {
-                    tc.sendMessage(String.format(EmoteReference.WARNING + "`[%s]` %s#%s just got unbanned.", hour, event.getUser().getName(), event.getUser().getDiscriminator())).queue();
+                    LogAggregator.log(tc, String.format(EmoteReference.WARNING + "`[%s]` %s#%s just got unbanned.", hour, event.getUser().getName(), event.getUser().getDiscriminator()));
                     logTotal++;
                 }
             }
@@ -460,7 +466,7 @@ public class MantaroListener implements EventListener {
             }
 
             guildActions.labels("leave").inc();
-            MantaroBot.getInstance().getAudioManager().getMusicManagers().remove(event.getGuild().getId());
+            MantaroBot.getInstance().getAudioManager().removeMusicManager(event.getGuild().getIdLong());
             GuildStatsManager.log(LoggedEvent.LEAVE);
         } catch (Exception e) {
             if (!(e instanceof NullPointerException) && !(e instanceof IllegalArgumentException)) {
@@ -473,100 +479,126 @@ public class MantaroListener implements EventListener {
         if (event.getAuthor().isFake())
             return;
 
-        //Moderation features
-        DBGuild dbGuild = MantaroData.db().getGuild(event.getGuild());
-        GuildData guildData = dbGuild.getData();
-
-        //link protection
-        if (guildData.isLinkProtection() && !guildData.getLinkProtectionAllowedChannels().contains(event.getChannel().getId()) &&
-                !guildData.getLinkProtectionAllowedUsers().contains(event.getAuthor().getId())) {
-            //Has link protection enabled, let's check if they don't have admin stuff.
-            if (event.getMember() != null && !event.getMember().hasPermission(Permission.ADMINISTRATOR) && !event.getMember().hasPermission(Permission.MANAGE_SERVER)) {
-                //Check if invite is valid. This is async because hasInvite uses complete sometimes.
-                shard.getThreadPool().execute(() -> {
-                    //If this message has an invite and it's not an invite to the same guild it was sent on, proceed to delete.
-                    if (hasInvite(event.getJDA(), event.getGuild(), event.getMessage().getContentRaw())) {
-                        Member bot = event.getGuild().getSelfMember();
-                        actions.labels("link_block").inc();
-                        if (bot.hasPermission(event.getChannel(), Permission.MESSAGE_MANAGE) || bot.hasPermission(Permission.ADMINISTRATOR)) {
-                            User author = event.getAuthor();
-
-                            //Ignore myself.
-                            if (event.getAuthor().getId().equals(event.getJDA().getSelfUser().getId())) {
-                                return;
-                            }
-
-                            //Ignore log channel.
-                            if (guildData.getGuildLogChannel() != null && event.getChannel().getId().equals(guildData.getGuildLogChannel())) {
-                                return;
-                            }
-
-                            //Yes, I know the check previously done is redundant, but in case someone decides to change the laws of nature, it should do	.
-                            event.getMessage().delete().queue();
-                            event.getChannel().sendMessage(EmoteReference.ERROR + "**You cannot advertise here.** Deleted invite link sent by **" + author.getName() + "#" + author.getDiscriminator() + "**.").queue();
-                        } else {
-                            event.getChannel().sendMessage(EmoteReference.ERROR + "I cannot remove the invite link because I don't have permission to delete messages!").queue();
-                        }
-                    }
-                });
-            }
+        //Link protection. Off on almost every guild, and then this doesn't even look at the message.
+        LinkProtection protection = LinkProtection.of(event.getGuild().getId());
+        if (!protection.appliesTo(event.getChannel().getId(), event.getAuthor().getId()))
+            return;
+
+        //Has link protection enabled, let's check if they don't have admin stuff.
+        if (event.getMember() == null || event.getMember().hasPermission(Permission.ADMINISTRATOR) || event.getMember().hasPermission(Permission.MANAGE_SERVER))
+            return;
+
+        //Ignore myself.
+        if (event.getAuthor().getIdLong() == event.getJDA().getSelfUser().getIdLong())
+            return;
+
+        List<String> invites = LinkProtection.findInvites(event.getMessage().getContentRaw());
+        if (invites == null)
+            return;
+
+        //Third party invite (discord.me, discord.io), we can't know where those go.
+        if (invites.isEmpty()) {
+            blockInvite(event);
+            return;
         }
+
+        //If this message has an invite and it's not an invite to the same guild it was sent on, proceed to delete.
+        InviteResolver.pointsElsewhere(event.getJDA(), event.getGuild().getIdLong(), invites).thenAccept(elsewhere -> {
+            if (elsewhere)
+                blockInvite(event);
+        });
     }
 
-    private void onUserJoin(GuildMemberJoinEvent event) {
-        DBGuild dbg = MantaroData.db().getGuild(event.getGuild());
-        GuildData data = dbg.getData();
+    private void blockInvite(GuildMessageReceivedEvent event) {
+        Member bot = event.getGuild().getSelfMember();
+        actions.labels("link_block").inc();
+        if (bot.hasPermission(event.getChannel(), Permission.MESSAGE_MANAGE) || bot.hasPermission(Permission.ADMINISTRATOR)) {
+            User author = event.getAuthor();
+            event.getMessage().delete().queue();
+            event.getChannel().sendMessage(EmoteReference.ERROR + "**You cannot advertise here.** Deleted invite link sent by **" + author.getName() + "#" + author.getDiscriminator() + "**.").queue();
+        } else {
+            event.getChannel().sendMessage(EmoteReference.ERROR + "I cannot remove the invite link because I don't have permission to delete messages!").queue();
+        }
+    }
 
-        try {
-            String role = MantaroData.db().getGuild(event.getGuild()).getData().getGuildAutoRole();
+    //Joins come in batches from the same guild, see JoinCoalescer. Usually it's just one.
+    private void onUserJoins(List<GuildMemberJoinEvent> events) {
+        Guild guild = events.get(0).getGuild();
+        GuildData data = MantaroData.db().getGuild(guild).getData();
+        List<GuildMemberJoinEvent> welcome = new ArrayList<>(events.size());
 
+        try {
             String hour = df.format(new Date(System.currentTimeMillis()));
-            if (role != null) {
-                try {
-                    if (!(event.getMember().getUser().isBot() && data.isIgnoreBotsAutoRole())) {
-                        Role toAssign = event.getGuild().getRoleById(role);
-                        if (toAssign != null) {
-                            if (!event.getGuild().getSelfMember().canInteract(toAssign))
-                                return;
-
-                            event.getGuild().getController().addSingleRoleToMember(event.getMember(), toAssign)
-                                    .reason("Autorole assigner.")
-                                    .queue(s -> log.debug("Successfully added a new role to " + event.getMember()));
-
-                            actions.labels("join_autorole").inc();
-                        }
+            Role autoRole = data.getGuildAutoRole() == null ? null : guild.getRoleById(data.getGuildAutoRole());
+            if (autoRole != null && !guild.getSelfMember().canInteract(autoRole))
+                autoRole = null;
+
+            TextChannel tc = data.getGuildLogChannel() == null ? null : guild.getTextChannelById(data.getGuildLogChannel());
+
+            for (GuildMemberJoinEvent event : events) {
+                Member member = event.getMember();
+                boolean bot = member.getUser().isBot();
+                if (autoRole != null && !(bot && data.isIgnoreBotsAutoRole())) {
+                    if (AutoroleQueue.add(member, autoRole))
+                        actions.labels("join_autorole").inc();
+                }
+
+                if (data.getGuildLogChannel() != null) {
+                    if (tc != null && tc.canTalk()) {
+                        LogAggregator.log(tc, String.format("`[%s]` \uD83D\uDCE3 `%s#%s` just joined `%s` `(User #%d | ID: %s)`", hour, event.getUser().getName(), event.getUser().getDiscriminator(), guild.getName(), guild.getMembers().size(), event.getUser().getId()));
                     }
-                } catch (Exception ignored) { }
-            }
 
-            String logChannel = MantaroData.db().getGuild(event.getGuild()).getData().getGuildLogChannel();
-            if (logChannel != null) {
-                TextChannel tc = event.getGuild().getTextChannelById(logChannel);
-                if (tc != null && tc.canTalk()) {
-                    tc.sendMessage(String.format("`[%s]` \uD83D\uDCE3 `%s#%s` just joined `%s` `(User #%d | ID: %s)`", hour, event.getUser().getName(), event.getUser().getDiscriminator(), event.getGuild().getName(), event.getGuild().getMembers().size(), event.getUser().getId())).queue();
+                    logTotal++;
                 }
 
-                logTotal++;
+                if (!(bot && data.isIgnoreBotsWelcomeMessage()))
+                    welcome.add(event);
             }
         } catch (Exception e) {
             SentryHelper.captureExceptionContext("Failed to process join message!", e, MantaroListener.class, "Join Handler");
         }
 
         try {
-            if(data.isIgnoreBotsWelcomeMessage())
-                return;
-
-            String joinChannel = data.getLogJoinLeaveChannel() != null && event.getGuild().getTextChannelById(data.getLogJoinLeaveChannel()) != null ?
+            String joinChannel = data.getLogJoinLeaveChannel() != null && guild.getTextChannelById(data.getLogJoinLeaveChannel()) != null ?
                     data.getLogJoinLeaveChannel() : data.getLogJoinChannel();
             String joinMessage = data.getJoinMessage();
-            sendJoinLeaveMessage(event, data.getExtraJoinMessages(), joinMessage, joinChannel);
-            actions.labels("join_messages").inc();
+            if (joinChannel == null || joinMessage == null)
+                return;
+
+            //One message for each group of members, mentioning all of them.
+            for (int i = 0; i < welcome.size(); i += WELCOMES_PER_MESSAGE) {
+                List<GuildMemberJoinEvent> group = welcome.subList(i, Math.min(welcome.size(), i + WELCOMES_PER_MESSAGE));
+                GuildMemberJoinEvent first = group.get(0);
+                Supplier<DynamicModifiers> modifiers = group.size() == 1 ?
+                        () -> new DynamicModifiers().mapEvent("event", first) : () -> joinModifiers(group);
+                sendJoinLeaveMessage(guild, first.getMember(), modifiers, data.getExtraJoinMessages(), joinMessage, joinChannel);
+                actions.labels("join_messages").inc(group.size());
+            }
         } catch (Exception e) {
             SentryHelper.captureExceptionContext("Failed to send join message!", e, MantaroListener.class, "Join Handler");
             log.error("Failed to send join message!", e);
         }
     }
 
+    //Modifiers of a join message for several members at once: the ones about the user list all of them, the rest are the same as for one.
+    private DynamicModifiers joinModifiers(List<GuildMemberJoinEvent> group) {
+        List<Member> members = group.stream().map(GuildMemberJoinEvent::getMember).collect(Collectors.toList());
+        String mentions = members.stream().map(Member::getAsMention).collect(Collectors.joining(", "));
+        String names = members.stream().map(Member::getEffectiveName).collect(Collectors.joining(", "));
+        String usernames = members.stream().map(m -> m.getUser().getName()).collect(Collectors.joining(", "));
+        String ids = members.stream().map(Member::getUser).map(User::getId).collect(Collectors.joining(", "));
+
+        //set() doesn't replace what's already there, so these go before mapEvent().
+        return new DynamicModifiers()
+                .set("event", mentions + "@" + group.get(0).getGuild().getName())
+                .set("event.user", mentions)
+                .set("event.user.mention", mentions)
+                .set("event.user.name", names)
+                .set("event.user.username", usernames)
+                .set("event.user.id", ids)
+                .mapEvent("event", group.get(0));
+    }
+
     private void onUserLeave(GuildMemberLeaveEvent event) {
         DBGuild dbg = MantaroData.db().getGuild(event.getGuild());
         GuildData data = dbg.getData();
@@ -582,7 +614,7 @@ public class MantaroListener implements EventListener {
             if (logChannel != null) {
                 TextChannel tc = event.getGuild().getTextChannelById(logChannel);
                 if (tc != null && tc.canTalk()) {
-                    tc.sendMessage(String.format("`[%s]` \uD83D\uDCE3 `%s#%s` just left `%s` `(User #%d)`", hour, event.getUser().getName(), event.getUser().getDiscriminator(), event.getGuild().getName(), event.getGuild().getMembers().size())).queue();
+                    LogAggregator.log(tc, String.format("`[%s]` \uD83D\uDCE3 `%s#%s` just left `%s` `(User #%d)`", hour, event.getUser().getName(), event.getUser().getDiscriminator(), event.getGuild().getName(), event.getGuild().getMembers().size()));
                 }
 
                 logTotal++;
@@ -598,7 +630,7 @@ public class MantaroListener implements EventListener {
             String leaveChannel = data.getLogJoinLeaveChannel() != null && event.getGuild().getTextChannelById(data.getLogJoinLeaveChannel()) != null ?
                     data.getLogJoinLeaveChannel() : data.getLogLeaveChannel();
             String leaveMessage = data.getLeaveMessage();
-            sendJoinLeaveMessage(event, data.getExtraLeaveMessages(), leaveMessage, leaveChannel);
+            sendJoinLeaveMessage(event.getGuild(), event.getMember(), () -> new DynamicModifiers().mapEvent("event", event), data.getExtraLeaveMessages(), leaveMessage, leaveChannel);
             actions.labels("leave_messages").inc();
         } catch (Exception e) {
             SentryHelper.captureExceptionContext("Failed to send leave message!", e, MantaroListener.class, "Join Handler");
@@ -606,12 +638,12 @@ public class MantaroListener implements EventListener {
         }
     }
 
-    private void sendJoinLeaveMessage(GenericGuildMemberEvent event, List<String> extraMessages, String msg, String channel) {
+    private void sendJoinLeaveMessage(Guild guild, Member member, Supplier<DynamicModifiers> modifiers, List<String> extraMessages, String msg, String channel) {
         int select = extraMessages.isEmpty() ? 0 : rand.nextInt(extraMessages.size());
         String message = rand.nextBoolean() ? msg : extraMessages.isEmpty() ? msg : extraMessages.get(select);
 
         if (channel != null && message != null) {
-            TextChannel tc = event.getGuild().getTextChannelById(channel);
+            TextChannel tc = guild.getTextChannelById(channel);
 
             if (tc == null) {
                 return;
@@ -622,9 +654,7 @@ public class MantaroListener implements EventListener {
             }
 
             if (message.contains("$(")) {
-                message = new DynamicModifiers()
-                        .mapEvent("event", event)
-                        .resolve(message);
+                message = modifiers.get().resolve(message);
             }
 
             int c = message.indexOf(':');
@@ -641,7 +671,7 @@ public class MantaroListener implements EventListener {
                         return;
                     }
 
-                    tc.sendMessage(embed.gen(event.getMember())).queue();
+                    tc.sendMessage(embed.gen(member)).queue();
                     return;
                 }
             }
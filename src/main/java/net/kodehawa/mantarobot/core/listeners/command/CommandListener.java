@@ -18,18 +18,20 @@ package net.kodehawa.mantarobot.core.listeners.command;
 
 import com.rethinkdb.gen.exc.ReqlError;
 import lombok.extern.slf4j.Slf4j;
+import net.dv8tion.jda.core.MessageBuilder;
 import net.dv8tion.jda.core.Permission;
 import net.dv8tion.jda.core.entities.Member;
 import net.dv8tion.jda.core.entities.TextChannel;
 import net.dv8tion.jda.core.events.Event;
 import net.dv8tion.jda.core.events.message.guild.GuildMessageReceivedEvent;
 import net.dv8tion.jda.core.exceptions.PermissionException;
-import net.dv8tion.jda.core.hooks.EventListener;
 import net.kodehawa.mantarobot.MantaroBot;
 import net.kodehawa.mantarobot.commands.currency.profile.Badge;
 import net.kodehawa.mantarobot.commands.custom.EmbedJSON;
 import net.kodehawa.mantarobot.commands.custom.legacy.DynamicModifiers;
-import net.kodehawa.mantarobot.core.listeners.entities.CachedMessage;
+import net.kodehawa.mantarobot.core.OutboundQueue;
+import net.kodehawa.mantarobot.core.OutboundQueue.Priority;
+import net.kodehawa.mantarobot.core.listeners.FilteredEventListener;
 import net.kodehawa.mantarobot.core.listeners.events.ShardMonitorEvent;
 import net.kodehawa.mantarobot.core.listeners.operations.InteractiveOperations;
 import net.kodehawa.mantarobot.core.processor.core.ICommandProcessor;
@@ -46,12 +48,16 @@ import net.kodehawa.mantarobot.utils.commands.EmoteReference;
 import net.kodehawa.mantarobot.utils.commands.RateLimiter;
 import net.kodehawa.mantarobot.utils.data.GsonDataManager;
 
-import java.util.Optional;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Random;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 @Slf4j
-public class CommandListener implements EventListener {
+public class CommandListener implements FilteredEventListener {
+    private static final Set<Class<? extends Event>> EVENT_TYPES = new HashSet<>(Arrays.asList(ShardMonitorEvent.class, GuildMessageReceivedEvent.class));
+
     private static final RateLimiter experienceRatelimiter = new RateLimiter(TimeUnit.SECONDS, 18);
     //Commands ran this session.
     private static int commandTotal = 0;
@@ -86,6 +92,11 @@ public class CommandListener implements EventListener {
         return System.currentTimeMillis() - lastMessageReceivedAt;
     }
 
+    @Override
+    public Set<Class<? extends Event>> getEventTypes() {
+        return EVENT_TYPES;
+    }
+
     @Override
     public void onEvent(Event event) {
         if(event instanceof ShardMonitorEvent) {
@@ -104,8 +115,8 @@ public class CommandListener implements EventListener {
         if(event instanceof GuildMessageReceivedEvent) {
             lastMessageReceivedAt = System.currentTimeMillis();
             GuildMessageReceivedEvent msg = (GuildMessageReceivedEvent) event;
-            //Inserts a cached message into the cache. This only holds the id and the content, and is way lighter than saving the entire jda object.
-            shard.getMessageCache().put(msg.getMessage().getId(), Optional.of(new CachedMessage(msg.getAuthor().getIdLong(), msg.getMessage().getContentDisplay())));
+            //Inserts a cached message into the cache (only if the guild has logs). This only holds the author and the content, and is way lighter than saving the entire jda object.
+            shard.getMessageCache().put(msg.getGuild().getId(), msg.getMessageIdLong(), msg.getAuthor().getIdLong(), msg.getMessage().getContentDisplay());
 
             //Ignore myself and bots.
             if(msg.getAuthor().isBot() || msg.getAuthor().equals(msg.getJDA().getSelfUser()))
@@ -241,15 +252,15 @@ public class CommandListener implements EventListener {
                 try {
                     embed = GsonDataManager.gson(false).fromJson('{' + v + '}', EmbedJSON.class);
                 } catch(Exception ignored) {
-                    tc.sendMessage(EmoteReference.ERROR2 + "The string ``{" + v + "}`` isn't a valid JSON.").queue();
+                    OutboundQueue.send(tc, Priority.ANNOUNCEMENT, EmoteReference.ERROR2 + "The string ``{" + v + "}`` isn't a valid JSON.");
                     return;
                 }
 
-                tc.sendMessage(embed.gen(event.getMember())).queue();
+                OutboundQueue.send(tc, Priority.ANNOUNCEMENT, "levelup:" + event.getAuthor().getId(), new MessageBuilder().setEmbed(embed.gen(event.getMember())).build(), null, null);
                 return;
             }
         }
 
-        tc.sendMessage(message).queue();
+        OutboundQueue.send(tc, Priority.ANNOUNCEMENT, "levelup:" + event.getAuthor().getId(), new MessageBuilder().append(message).build(), null, null);
     }
 }
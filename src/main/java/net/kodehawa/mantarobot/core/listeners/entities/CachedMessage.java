@@ -16,18 +16,40 @@
 
 package net.kodehawa.mantarobot.core.listeners.entities;
 
-import lombok.AllArgsConstructor;
-import lombok.Getter;
 import net.dv8tion.jda.core.entities.User;
 import net.kodehawa.mantarobot.MantaroBot;
 
-@AllArgsConstructor
+import java.nio.charset.StandardCharsets;
+
 public class CachedMessage {
-    private long author;
-    @Getter
-    private String content;
+    //Object headers, the array header and the fields, roughly.
+    private static final int OVERHEAD = 48;
+
+    private final long author;
+    //UTF-8 takes half the memory of a String for most messages.
+    private final byte[] content;
+
+    public CachedMessage(long author, String content) {
+        this.author = author;
+        this.content = content.getBytes(StandardCharsets.UTF_8);
+    }
 
     public User getAuthor() {
         return MantaroBot.getInstance().getUserById(author);
     }
+
+    public String getContent() {
+        return new String(content, StandardCharsets.UTF_8);
+    }
+
+    public boolean hasContent() {
+        return content.length != 0;
+    }
+
+    /**
+     * @return Estimated memory used by this message, in bytes.
+     */
+    public int size() {
+        return OVERHEAD + content.length;
+    }
 }
@@ -20,40 +20,30 @@ import net.dv8tion.jda.core.entities.MessageChannel;
 import net.dv8tion.jda.core.events.Event;
 import net.dv8tion.jda.core.events.message.guild.GuildMessageReceivedEvent;
 import net.dv8tion.jda.core.hooks.EventListener;
+import net.kodehawa.mantarobot.core.MantaroExecutors;
+import net.kodehawa.mantarobot.core.listeners.FilteredEventListener;
 import net.kodehawa.mantarobot.core.listeners.operations.core.InteractiveOperation;
 import net.kodehawa.mantarobot.core.listeners.operations.core.Operation;
-import net.kodehawa.mantarobot.utils.Prometheus;
 
-import java.util.Collections;
-import java.util.List;
+import java.util.*;
 import java.util.concurrent.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 /**
  * Utility class to create, get or use a {@link InteractiveOperation}.
  * An InteractiveOperation is an Operation that listens for upcoming messages. It can be used for all kind of stuff, like listening for user input, etc.
+ * <p>
+ * Timeouts live on a {@link TimingWheel}, so there's nothing sweeping every operation every second. Messages on channels without operations (almost
+ * all of them) are skipped by checking a counter indexed by the channel id, without touching the map.
  */
 public class InteractiveOperations {
     //The listener used to check interactive operations.
     private static final EventListener LISTENER = new InteractiveListener();
 
-    private static final ConcurrentHashMap<Long, List<RunningOperation>> OPS = new ConcurrentHashMap<>();
-
-    static {
-        ScheduledExecutorService s = Executors.newScheduledThreadPool(10, r->{
-            Thread t = new Thread(r);
-            t.setDaemon(true);
-            t.setName("InteractiveOperations-Timeout-Processor");
-            return t;
-        });
-
-        Prometheus.THREAD_POOL_COLLECTOR.add("interactive-operations-timeout", s);
-
-        s.scheduleAtFixedRate(()-> OPS.values().removeIf(list->{
-            list.removeIf(RunningOperation::isTimedOut);
-            return list.isEmpty();
-        }), 1, 1, TimeUnit.SECONDS);
-    }
+    private static final ConcurrentHashMap<Long, Queue<RunningOperation>> OPS = new ConcurrentHashMap<>();
+    //Operations running on the channels whose ids hash to each slot. A zero means there's none on the channel for sure.
+    private static final AtomicIntegerArray CHANNELS = new AtomicIntegerArray(4096);
+    private static final TimingWheel TIMEOUTS = new TimingWheel("interactive-operations", 250, 256);
 
     /**
      * Returns a Future<Void> representing the current RunningOperation instance on the specified channel.
@@ -70,9 +60,19 @@ public class InteractiveOperations {
      * @return Future<Void> or null if there's none.
      */
     public static List<Future<Void>> get(long channelId) {
-        List<RunningOperation> l = OPS.get(channelId);
+        if(CHANNELS.get(slot(channelId)) == 0)
+            return Collections.emptyList();
 
-        return l == null ? Collections.emptyList() : l.stream().map(o->o.future).collect(Collectors.toList());
+        Queue<RunningOperation> l = OPS.get(channelId);
+        if(l == null)
+            return Collections.emptyList();
+
+        List<Future<Void>> futures = new ArrayList<>(l.size());
+        for(RunningOperation o : l) {
+            futures.add(o.future);
+        }
+
+        return futures;
     }
 
     /**
@@ -106,18 +106,24 @@ public class InteractiveOperations {
         if(operation == null)
             throw new IllegalArgumentException("Operation cannot be null");
 
-        List<RunningOperation> l = OPS.computeIfAbsent(channelId, ignored->new CopyOnWriteArrayList<>());
-
-        RunningOperation current = l.stream().filter(op -> op.userId == userId).findFirst().orElse(null);
-        if(current != null) {
-            //Always override old player operation.
-            current.future.cancel(true);
-            l.remove(current);
+        Queue<RunningOperation> l = OPS.get(channelId);
+        if(l != null) {
+            for(RunningOperation current : l) {
+                //Always override old player operation.
+                if(current.userId == userId)
+                    current.future.cancel(true);
+            }
         }
 
         RunningOperation o = new RunningOperation(operation, userId, channelId, timeoutSeconds * 1000);
-        l.add(o);
-        OPS.put(channelId, l);
+        OPS.compute(channelId, (id, ops) -> {
+            if(ops == null)
+                ops = new ConcurrentLinkedQueue<>();
+
+            ops.add(o);
+            return ops;
+        });
+        CHANNELS.incrementAndGet(slot(channelId));
 
         return o.future;
     }
@@ -129,43 +135,74 @@ public class InteractiveOperations {
         return LISTENER;
     }
 
+    /**
+     * @return Amount of running operations.
+     */
+    public static int size() {
+        return TIMEOUTS.size();
+    }
+
+    private static int slot(long channelId) {
+        //Snowflakes have the timestamp on the upper bits, the lower bits are what changes between channels.
+        return (int) ((channelId ^ (channelId >>> 22)) & (CHANNELS.length() - 1));
+    }
+
+    //Takes an operation out of its channel. Only one caller gets true, the one that gets to complete, cancel or expire it.
+    private static boolean remove(RunningOperation operation) {
+        boolean[] removed = new boolean[1];
+        OPS.computeIfPresent(operation.channelId, (id, ops) -> {
+            removed[0] = ops.remove(operation);
+            return ops.isEmpty() ? null : ops;
+        });
+
+        if(removed[0]) {
+            CHANNELS.decrementAndGet(slot(operation.channelId));
+            operation.timeout.cancel();
+        }
+
+        return removed[0];
+    }
+
     /**
      * This class listens for all RunningOperation instances. Basically handles the operation run and termination procedures.
      */
-    public static class InteractiveListener implements EventListener {
+    public static class InteractiveListener implements FilteredEventListener {
+        @Override
+        public Set<Class<? extends Event>> getEventTypes() {
+            return Collections.singleton(GuildMessageReceivedEvent.class);
+        }
+
         @Override
         public void onEvent(Event e) {
             if(!(e instanceof GuildMessageReceivedEvent))
                 return;
 
             GuildMessageReceivedEvent event = (GuildMessageReceivedEvent) e;
+            long channelId = event.getChannel().getIdLong();
+            if(CHANNELS.get(slot(channelId)) == 0)
+                return;
 
             //Don't listen to ourselves...
             if(event.getAuthor().equals(event.getJDA().getSelfUser()))
                 return;
 
-            long channelId = event.getChannel().getIdLong();
-            List<RunningOperation> l = OPS.get(channelId);
-
-            if(l == null || l.isEmpty())
+            Queue<RunningOperation> l = OPS.get(channelId);
+            if(l == null)
                 return;
 
-            l.removeIf(o->{
+            for(RunningOperation o : l) {
                 try {
                     int i = o.operation.run(event);
                     if(i == Operation.COMPLETED) {
-                        o.future.complete(null);
-                        return true;
-                    }
-                    if(i == Operation.RESET_TIMEOUT) {
-                        o.resetTimeout();
+                        if(remove(o))
+                            o.future.complete(null);
+                    } else if(i == Operation.RESET_TIMEOUT) {
+                        o.timeout.reset(o.timeoutMillis);
                     }
-                    return false;
                 } catch (Exception ex) {
                     ex.printStackTrace();
-                    return false;
                 }
-            });
+            }
         }
     }
 
@@ -173,42 +210,35 @@ public class InteractiveOperations {
     private static final class RunningOperation {
         final OperationFuture future;
         final InteractiveOperation operation;
-        final long timeout;
-        long timeoutTime;
-        long userId;
+        final long timeoutMillis;
+        final TimingWheel.Timeout timeout;
+        final long channelId;
+        final long userId;
 
-        //timeout (argument) is in millis, field is in nanos
-        RunningOperation(InteractiveOperation operation, long userId, long channelId, long timeout) {
+        RunningOperation(InteractiveOperation operation, long userId, long channelId, long timeoutMillis) {
             this.operation = operation;
-            this.future = new OperationFuture(channelId, this);
-            this.timeout = timeout * 1_000_000;
+            this.future = new OperationFuture(this);
+            this.timeoutMillis = timeoutMillis;
+            this.channelId = channelId;
             this.userId = userId;
-            resetTimeout();
-        }
-
-        boolean isTimedOut() {
-            return timeoutTime - System.nanoTime() < 0;
-        }
-
-        void resetTimeout() {
-            timeoutTime = System.nanoTime() + timeout;
+            this.timeout = TIMEOUTS.schedule(timeoutMillis, () -> {
+                //onExpire usually sends messages or touches the database, keep it off the wheel.
+                if(remove(this))
+                    MantaroExecutors.common().execute(operation::onExpire);
+            });
         }
     }
 
     private static final class OperationFuture extends CompletableFuture<Void> {
-        private final long id;
         private final RunningOperation operation;
 
-        OperationFuture(long id, RunningOperation operation) {
-            this.id = id;
+        OperationFuture(RunningOperation operation) {
             this.operation = operation;
         }
 
         @Override
         public boolean cancel(boolean mayInterruptIfRunning) {
-            List<RunningOperation> l = OPS.get(id);
-
-            if(l == null || !l.remove(operation))
+            if(!remove(operation))
                 return false;
 
             operation.operation.onCancel();
@@ -22,26 +22,38 @@ import net.dv8tion.jda.core.events.message.react.MessageReactionAddEvent;
 import net.dv8tion.jda.core.events.message.react.MessageReactionRemoveAllEvent;
 import net.dv8tion.jda.core.events.message.react.MessageReactionRemoveEvent;
 import net.dv8tion.jda.core.hooks.EventListener;
-import net.jodah.expiringmap.ExpiringMap;
+import net.kodehawa.mantarobot.core.MantaroExecutors;
+import net.kodehawa.mantarobot.core.listeners.FilteredEventListener;
 import net.kodehawa.mantarobot.core.listeners.operations.core.Operation;
 import net.kodehawa.mantarobot.core.listeners.operations.core.ReactionOperation;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 
+/**
+ * Operations that listen for reactions on a message sent by the bot (paginated lists, polls, confirmations...).
+ * <p>
+ * Operations are keyed by message id and time out on a {@link TimingWheel}. Reactions on messages without an operation (almost all of them) are
+ * skipped by checking a counter indexed by the message id, without touching the map.
+ */
 public final class ReactionOperations {
 
     //The listener used to check reactions
     private static final EventListener LISTENER = new ReactionListener();
 
-    private static final ExpiringMap<Long, RunningOperation> OPERATIONS = ExpiringMap.<Long, RunningOperation>builder()
-            .asyncExpirationListener((key, value) -> ((RunningOperation) value).operation.onExpire())
-            .variableExpiration()
-            .build();
+    private static final ConcurrentMap<Long, RunningOperation> OPERATIONS = new ConcurrentHashMap<>();
+    //Operations running on the messages whose ids hash to each slot. A zero means there's none on the message for sure.
+    private static final AtomicIntegerArray MESSAGES = new AtomicIntegerArray(4096);
+    private static final TimingWheel TIMEOUTS = new TimingWheel("reaction-operations", 250, 512);
 
     public static Future<Void> get(Message message) {
         if(!message.getAuthor().equals(message.getJDA().getSelfUser()))
@@ -51,7 +63,7 @@ public final class ReactionOperations {
     }
 
     public static Future<Void> get(long messageId) {
-        RunningOperation o = OPERATIONS.get(messageId);
+        RunningOperation o = lookup(messageId);
 
         return o == null ? null : o.future;
     }
@@ -93,16 +105,13 @@ public final class ReactionOperations {
         if(operation == null)
             throw new IllegalArgumentException("Operation cannot be null!");
 
-        RunningOperation o = OPERATIONS.get(messageId);
-
-        //If we find an already-running one, return the running operation.
+        RunningOperation o = start(messageId, timeoutSeconds, operation);
         if(o != null)
             return o.future;
 
-        o = new RunningOperation(operation, new OperationFuture(messageId));
-        OPERATIONS.put(messageId, o, timeoutSeconds, TimeUnit.SECONDS);
-
-        return o.future;
+        //If we find an already-running one, return the running operation.
+        RunningOperation running = OPERATIONS.get(messageId);
+        return running == null ? createOrGet(messageId, timeoutSeconds, operation) : running.future;
     }
 
     public static Future<Void> create(Message message, long timeoutSeconds, ReactionOperation operation, String... defaultReactions) {
@@ -143,20 +152,81 @@ public final class ReactionOperations {
         if(operation == null)
             throw new IllegalArgumentException("Operation cannot be null!");
 
-        RunningOperation o = OPERATIONS.get(messageId);
+        RunningOperation o = start(messageId, timeoutSeconds, operation);
 
         //Already running?
-        if(o != null)
+        return o == null ? null : o.future;
+    }
+
+    public static EventListener listener() {
+        return LISTENER;
+    }
+
+    /**
+     * @return Amount of running operations.
+     */
+    public static int size() {
+        return TIMEOUTS.size();
+    }
+
+    //Starts an operation, unless there's one running on the message already (then returns null).
+    private static RunningOperation start(long messageId, long timeoutSeconds, ReactionOperation operation) {
+        RunningOperation o = new RunningOperation(operation, messageId, timeoutSeconds * 1000);
+        if(OPERATIONS.putIfAbsent(messageId, o) != null)
             return null;
 
-        o = new RunningOperation(operation, new OperationFuture(messageId));
-        OPERATIONS.put(messageId, o, timeoutSeconds, TimeUnit.SECONDS);
+        MESSAGES.incrementAndGet(slot(messageId));
+        o.timeout = TIMEOUTS.schedule(o.timeoutMillis, () -> {
+            //onExpire usually edits messages or touches the database, keep it off the wheel.
+            if(remove(o))
+                MantaroExecutors.common().execute(operation::onExpire);
+        });
 
-        return o.future;
+        //Cancelled or completed before we got to schedule it.
+        if(OPERATIONS.get(messageId) != o)
+            o.timeout.cancel();
+
+        return o;
     }
 
-    public static EventListener listener() {
-        return LISTENER;
+    private static RunningOperation lookup(long messageId) {
+        if(MESSAGES.get(slot(messageId)) == 0)
+            return null;
+
+        return OPERATIONS.get(messageId);
+    }
+
+    private static int slot(long messageId) {
+        //Snowflakes have the timestamp on the upper bits, the lower bits are what changes between messages.
+        return (int) ((messageId ^ (messageId >>> 22)) & (MESSAGES.length() - 1));
+    }
+
+    //Takes an operation out of the map. Only one caller gets true, the one that gets to complete, cancel or expire it.
+    private static boolean remove(RunningOperation o) {
+        if(!OPERATIONS.remove(o.messageId, o))
+            return false;
+
+        MESSAGES.decrementAndGet(slot(o.messageId));
+        //Null if we're still starting it, then start() cancels it once it's scheduled.
+        TimingWheel.Timeout timeout = o.timeout;
+        if(timeout != null)
+            timeout.cancel();
+
+        return true;
+    }
+
+    //Completes or resets an operation depending on what it returned.
+    private static void handle(RunningOperation o, int result) {
+        if(result == Operation.COMPLETED) {
+            //Operation has been completed. We can remove this from the running operations list and go on.
+            if(remove(o))
+                o.future.complete(null);
+        } else if(result == Operation.RESET_TIMEOUT) {
+            //Reset the expiration of this specific operation.
+            TimingWheel.Timeout timeout = o.timeout;
+            if(timeout != null)
+                timeout.reset(o.timeoutMillis);
+        }
     }
 
     private static String reaction(String r) {
@@ -166,80 +236,49 @@ public final class ReactionOperations {
         return r;
     }
 
-    public static class ReactionListener implements EventListener {
+    public static class ReactionListener implements FilteredEventListener {
+        private static final Set<Class<? extends Event>> EVENT_TYPES = new HashSet<>(Arrays.asList(
+                MessageReactionAddEvent.class, MessageReactionRemoveEvent.class, MessageReactionRemoveAllEvent.class
+        ));
+
+        @Override
+        public Set<Class<? extends Event>> getEventTypes() {
+            return EVENT_TYPES;
+        }
+
         @Override
         public void onEvent(Event e) {
 
             if(e instanceof MessageReactionAddEvent) {
                 MessageReactionAddEvent event = (MessageReactionAddEvent) e;
-                if(event.getReaction().isSelf())
-                    return;
-
-                long messageId = event.getMessageIdLong();
-                RunningOperation o = OPERATIONS.get(messageId);
-
-                if(o == null)
+                RunningOperation o = lookup(event.getMessageIdLong());
+                if(o == null || event.getReaction().isSelf())
                     return;
 
                 //Forward this event to the anonymous class.
-                int i = o.operation.add(event);
-
-                if(i == Operation.COMPLETED) {
-                    //Operation has been completed. We can remove this from the running operations list and go on.
-                    OPERATIONS.remove(messageId);
-                    o.future.complete(null);
-                } else if(i == Operation.RESET_TIMEOUT) {
-                    //Reset the expiration of this specific operation.
-                    OPERATIONS.resetExpiration(messageId);
-                }
-
+                handle(o, o.operation.add(event));
                 return;
             }
 
             if(e instanceof MessageReactionRemoveEvent) {
                 MessageReactionRemoveEvent event = (MessageReactionRemoveEvent) e;
-                if(event.getReaction().isSelf())
-                    return;
-
-                long messageId = event.getMessageIdLong();
-                RunningOperation o = OPERATIONS.get(messageId);
-
-                if(o == null)
+                RunningOperation o = lookup(event.getMessageIdLong());
+                if(o == null || event.getReaction().isSelf())
                     return;
 
                 //Forward this event to the anonymous class.
-                int i = o.operation.remove(event);
-
-                if(i == Operation.COMPLETED) {
-                    //Operation has been completed. We can remove this from the running operations list and go on.
-                    OPERATIONS.remove(messageId);
-                    o.future.complete(null);
-                } else if(i == Operation.RESET_TIMEOUT) {
-                    //Reset the expiration of this specific operation.
-                    OPERATIONS.resetExpiration(messageId);
-                }
-
+                handle(o, o.operation.remove(event));
                 return;
             }
 
             if(e instanceof MessageReactionRemoveAllEvent) {
                 MessageReactionRemoveAllEvent event = (MessageReactionRemoveAllEvent) e;
-                long messageId = event.getMessageIdLong();
-                RunningOperation o = OPERATIONS.get(messageId);
+                RunningOperation o = lookup(event.getMessageIdLong());
                 if(o == null)
                     return;
 
                 //Forward this event to the anonymous class.
-                int i = o.operation.removeAll(event);
-
-                if(i == Operation.COMPLETED) {
-                    //Operation has been completed. We can remove this from the running operations list and go on.
-                    OPERATIONS.remove(messageId);
-                    o.future.complete(null);
-                } else if(i == Operation.RESET_TIMEOUT) {
-                    //Reset the expiration of this specific operation.
-                    OPERATIONS.resetExpiration(messageId);
-                }
+                handle(o, o.operation.removeAll(event));
             }
         }
     }
@@ -247,29 +286,32 @@ public final class ReactionOperations {
     private static class RunningOperation {
         final OperationFuture future;
         final ReactionOperation operation;
+        final long messageId;
+        final long timeoutMillis;
+        volatile TimingWheel.Timeout timeout;
 
-        RunningOperation(ReactionOperation operation, OperationFuture future) {
+        RunningOperation(ReactionOperation operation, long messageId, long timeoutMillis) {
             this.operation = operation;
-            this.future = future;
+            this.messageId = messageId;
+            this.timeoutMillis = timeoutMillis;
+            this.future = new OperationFuture(this);
         }
     }
 
     private static class OperationFuture extends CompletableFuture<Void> {
-        private final long id;
+        private final RunningOperation operation;
 
-        OperationFuture(long id) {
-            this.id = id;
+        OperationFuture(RunningOperation operation) {
+            this.operation = operation;
         }
 
         @Override
         public boolean cancel(boolean mayInterruptIfRunning) {
             super.cancel(mayInterruptIfRunning);
-            RunningOperation o = OPERATIONS.remove(id);
-
-            if(o == null)
+            if(!remove(operation))
                 return false;
 
-            o.operation.onCancel();
+            operation.operation.onCancel();
             return true;
         }
     }
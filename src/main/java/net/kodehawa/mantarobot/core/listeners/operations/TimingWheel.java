@@ -0,0 +1,238 @@
+/*
+ * Copyright (C) 2016-2018 David Alejandro Rubio Escares / Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro.  If not, see http://www.gnu.org/licenses/
+ */
+
+package net.kodehawa.mantarobot.core.listeners.operations;
+
+import io.prometheus.client.Gauge;
+import io.prometheus.client.Histogram;
+import lombok.extern.slf4j.Slf4j;
+import net.kodehawa.mantarobot.core.MantaroExecutors;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Hashed timing wheel for operation timeouts.
+ * <p>
+ * Timeouts hash into a ring of buckets by the tick they expire on, so scheduling and cancelling one is O(1) no matter how many are running, and each
+ * tick only looks at a single bucket instead of every operation. All bucket work happens on one tick task on {@link MantaroExecutors#timer()}:
+ * other threads only push to a queue (scheduling, cancelling) or write a volatile (resetting), so there are no locks.
+ * <p>
+ * Resetting a timeout just moves its deadline forward. The wheel notices when it reaches its old bucket and moves it to the new one then, so
+ * operations that reset on every message don't allocate anything for it.
+ */
+@Slf4j
+final class TimingWheel {
+    private static final Gauge running = Gauge.build()
+            .name("operations_running").help("Operations waiting to time out, by kind")
+            .labelNames("wheel")
+            .register();
+    private static final Histogram expiryLag = Histogram.build()
+            .name("operation_expiry_lag_seconds").help("Time between an operation's deadline and it actually expiring, by kind")
+            .labelNames("wheel")
+            .buckets(.01, .05, .1, .25, .5, 1, 2.5, 5)
+            .register();
+    private static final int ACTIVE = 0, CANCELLED = 1, EXPIRED = 2;
+    private static final AtomicIntegerFieldUpdater<Timeout> STATE = AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+    private final Timeout[] buckets;
+    private final int mask;
+    private final long tickNanos;
+    private final long start = System.nanoTime();
+    private final Queue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final Gauge.Child runningChild;
+    private final Histogram.Child expiryLagChild;
+    //Only touched by the tick task.
+    private long tick;
+
+    /**
+     * @param name       Name of this wheel, for logging and metrics.
+     * @param tickMillis How often the wheel ticks. Timeouts fire up to this late.
+     * @param buckets    Amount of buckets, rounded up to a power of two. Timeouts longer than a lap stay on their bucket for extra laps.
+     */
+    TimingWheel(String name, long tickMillis, int buckets) {
+        int n = Integer.highestOneBit(Math.max(1, buckets - 1)) << 1;
+        this.buckets = new Timeout[n];
+        this.mask = n - 1;
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.runningChild = running.labels(name);
+        this.expiryLagChild = expiryLag.labels(name);
+
+        MantaroExecutors.timer().scheduleAtFixedRate(() -> {
+            try {
+                tick();
+            } catch(Throwable t) {
+                log.error("Error ticking timing wheel {}", name, t);
+            }
+        }, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Schedules a timeout.
+     *
+     * @param delayMillis How long until it expires.
+     * @param onExpire    What to run when it expires. Runs on the tick task, so it should be quick.
+     * @return The timeout, which can be reset or cancelled.
+     */
+    Timeout schedule(long delayMillis, Runnable onExpire) {
+        Timeout timeout = new Timeout(this, onExpire, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis));
+        runningChild.set(size.incrementAndGet());
+        scheduled.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * @return Timeouts that haven't expired or been cancelled yet.
+     */
+    int size() {
+        return size.get();
+    }
+
+    private void tick() {
+        long now = System.nanoTime();
+        long target = (now - start) / tickNanos;
+
+        Timeout timeout;
+        while((timeout = cancelled.poll()) != null) {
+            unlink(timeout);
+        }
+
+        while((timeout = scheduled.poll()) != null) {
+            if(timeout.state == ACTIVE)
+                place(timeout);
+        }
+
+        List<Timeout> moved = null;
+        for(; tick <= target; tick++) {
+            timeout = buckets[(int) (tick & mask)];
+            while(timeout != null) {
+                Timeout next = timeout.next;
+                if(timeout.state != ACTIVE) {
+                    unlink(timeout);
+                } else if(timeout.rounds > 0) {
+                    timeout.rounds--;
+                } else if(timeout.deadline - now > 0) {
+                    //Was reset, put it where it belongs once we're done with this bucket.
+                    unlink(timeout);
+                    if(moved == null)
+                        moved = new ArrayList<>();
+                    moved.add(timeout);
+                } else {
+                    unlink(timeout);
+                    expiryLagChild.observe(Math.max(0, now - timeout.deadline) / 1e9);
+                    timeout.expire();
+                }
+
+                timeout = next;
+            }
+        }
+
+        if(moved != null) {
+            for(Timeout t : moved) {
+                place(t);
+            }
+        }
+    }
+
+    //Links a timeout to the bucket of the tick it expires on (or the next tick, if that already passed).
+    private void place(Timeout timeout) {
+        long expiresOn = Math.max(tick, (timeout.deadline - start + tickNanos - 1) / tickNanos);
+        int bucket = (int) (expiresOn & mask);
+        timeout.rounds = (expiresOn - tick) / buckets.length;
+        timeout.bucket = bucket;
+        timeout.prev = null;
+        timeout.next = buckets[bucket];
+        if(timeout.next != null)
+            timeout.next.prev = timeout;
+        buckets[bucket] = timeout;
+    }
+
+    private void unlink(Timeout timeout) {
+        if(timeout.bucket == -1)
+            return;
+
+        if(timeout.prev != null)
+            timeout.prev.next = timeout.next;
+        else
+            buckets[timeout.bucket] = timeout.next;
+
+        if(timeout.next != null)
+            timeout.next.prev = timeout.prev;
+
+        timeout.prev = timeout.next = null;
+        timeout.bucket = -1;
+    }
+
+    static final class Timeout {
+        private final TimingWheel wheel;
+        private final Runnable onExpire;
+        private volatile long deadline;
+        private volatile int state = ACTIVE;
+        //Only touched by the tick task.
+        private Timeout prev, next;
+        private int bucket = -1;
+        private long rounds;
+
+        private Timeout(TimingWheel wheel, Runnable onExpire, long deadline) {
+            this.wheel = wheel;
+            this.onExpire = onExpire;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Makes this expire {@code delayMillis} from now instead. Only moves the deadline forward, so resetting with the same delay every time
+         * (the usual case) always works.
+         */
+        void reset(long delayMillis) {
+            deadline = Math.max(deadline, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis));
+        }
+
+        /**
+         * @return Whether it was cancelled by this call. False if it already expired or was cancelled before.
+         */
+        boolean cancel() {
+            if(!STATE.compareAndSet(this, ACTIVE, CANCELLED))
+                return false;
+
+            wheel.runningChild.set(wheel.size.decrementAndGet());
+            wheel.cancelled.add(this);
+            return true;
+        }
+
+        boolean isActive() {
+            return state == ACTIVE;
+        }
+
+        private void expire() {
+            if(!STATE.compareAndSet(this, ACTIVE, EXPIRED))
+                return;
+
+            wheel.runningChild.set(wheel.size.decrementAndGet());
+            try {
+                onExpire.run();
+            } catch(Throwable t) {
+                log.error("Error running timeout", t);
+            }
+        }
+    }
+}
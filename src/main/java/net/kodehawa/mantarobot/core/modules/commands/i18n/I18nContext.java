@@ -16,29 +16,49 @@
 
 package net.kodehawa.mantarobot.core.modules.commands.i18n;
 
-import lombok.AllArgsConstructor;
+import lombok.Getter;
 import net.kodehawa.mantarobot.data.I18n;
 import net.kodehawa.mantarobot.db.entities.helpers.GuildData;
 import net.kodehawa.mantarobot.db.entities.helpers.UserData;
 
-@AllArgsConstructor
+import java.util.Objects;
+
 public class I18nContext {
+    @Getter
     private GuildData guildData;
     private UserData userData;
+    //Resolved once, and again only if the language of the guild or the user changed since.
+    private I18n context;
+    private String resolvedGuildLang;
+    private String resolvedUserLang;
+
+    public I18nContext(GuildData guildData, UserData userData) {
+        this.guildData = guildData;
+        this.userData = userData;
+    }
 
     public String get(String s) {
-        I18n context = I18n.getForLanguage(getContextLanguage());
-        return context.get(s);
+        return context().get(s);
     }
 
     public String withRoot(String root, String s) {
-        I18n context = I18n.getForLanguage(getContextLanguage());
-        return context.withRoot(root, s);
+        return context().withRoot(root, s);
     }
 
     public String getContextLanguage() {
-        String lang = userData.getLang() == null || userData.getLang().isEmpty() ? guildData.getLang() : userData.getLang();
-        I18n context = I18n.getForLanguage(lang);
-        return context == null ? "en_US" : lang;
+        return context().getLanguage();
+    }
+
+    private I18n context() {
+        String guildLang = guildData.getLang();
+        String userLang = userData.getLang();
+        if(context == null || !Objects.equals(guildLang, resolvedGuildLang) || !Objects.equals(userLang, resolvedUserLang)) {
+            String lang = userLang == null || userLang.isEmpty() ? guildLang : userLang;
+            context = I18n.getForLanguage(lang);
+            resolvedGuildLang = guildLang;
+            resolvedUserLang = userLang;
+        }
+
+        return context;
     }
 }
@@ -16,10 +16,6 @@
 
 package net.kodehawa.mantarobot.core.shard;
 
-import br.com.brjdevs.java.utils.async.Async;
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.sedmelluq.discord.lavaplayer.jdaudp.NativeAudioSendFactory;
 import lombok.Getter;
 import lombok.experimental.Delegate;
@@ -31,32 +27,25 @@ import net.dv8tion.jda.core.exceptions.RateLimitedException;
 import net.dv8tion.jda.core.utils.SessionController;
 import net.dv8tion.jda.core.utils.SessionControllerAdapter;
 import net.dv8tion.jda.core.utils.cache.CacheFlag;
-import net.kodehawa.mantarobot.MantaroBot;
 import net.kodehawa.mantarobot.commands.music.listener.VoiceChannelListener;
 import net.kodehawa.mantarobot.commands.utils.birthday.BirthdayTask;
 import net.kodehawa.mantarobot.core.MantaroEventManager;
 import net.kodehawa.mantarobot.core.listeners.MantaroListener;
 import net.kodehawa.mantarobot.core.listeners.command.CommandListener;
-import net.kodehawa.mantarobot.core.listeners.entities.CachedMessage;
 import net.kodehawa.mantarobot.core.listeners.operations.InteractiveOperations;
 import net.kodehawa.mantarobot.core.listeners.operations.ReactionOperations;
 import net.kodehawa.mantarobot.core.processor.core.ICommandProcessor;
 import net.kodehawa.mantarobot.data.Config;
 import net.kodehawa.mantarobot.data.MantaroData;
-import net.kodehawa.mantarobot.utils.Prometheus;
-import net.kodehawa.mantarobot.utils.Utils;
-import org.apache.commons.lang3.time.DateUtils;
-import org.json.JSONObject;
+import okhttp3.OkHttpClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.security.auth.login.LoginException;
 import java.util.*;
 import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import static net.kodehawa.mantarobot.data.MantaroData.config;
-import static net.kodehawa.mantarobot.utils.Utils.pretty;
 
 /**
  * Represents a Discord shard.
@@ -74,19 +63,11 @@ public class MantaroShard implements JDA {
     private final int shardId;
     private final int totalShards;
     private BirthdayTask birthdayTask = new BirthdayTask();
-    private ScheduledExecutorService executorService = Executors.newScheduledThreadPool(2);
     private static final Config config = MantaroData.config().get();
-    //Message cache of 2500 cached messages per shard. If it reaches 2500 it will delete the first one stored, and continue being 2500.
+    //Messages of the guilds with logs enabled, for the edit and delete logs.
     @Getter
-    private final Cache<String, Optional<CachedMessage>> messageCache = CacheBuilder.newBuilder().concurrencyLevel(5).maximumSize(2500).build();
+    private final MessageCache messageCache;
 
-    //Christmas date
-    private static final Calendar christmas = new Calendar.Builder().setDate(Calendar.getInstance().get(Calendar.YEAR), Calendar.DECEMBER, 25).build();
-    //New year date
-    private static final Calendar newYear = new Calendar.Builder().setDate(Calendar.getInstance().get(Calendar.YEAR), Calendar.JANUARY, 1).build();
-
-    private final String callbackPoolIdentifierString;
-    private final String ratelimitPoolIdentifierString;
     @Getter
     public final MantaroEventManager manager;
     @Getter
@@ -108,28 +89,14 @@ public class MantaroShard implements JDA {
      * @throws InterruptedException
      */
     public MantaroShard(int shardId, int totalShards, MantaroEventManager manager, ICommandProcessor commandProcessor) throws RateLimitedException, LoginException, InterruptedException {
-        this.callbackPoolIdentifierString = "callback-pool-shard-" + shardId;
-        this.ratelimitPoolIdentifierString = "ratelimit-pool-shard-" + shardId;
         this.shardId = shardId;
+        this.messageCache = new MessageCache(shardId);
         this.totalShards = totalShards;
         this.manager = manager;
 
-        ThreadFactory normalTPNamedFactory =
-                new ThreadFactoryBuilder()
-                        .setNameFormat("MantaroShard-Executor[" + shardId + "/" + totalShards + "] Thread-%d")
-                        .build();
-
-        ThreadFactory commandTPNamedFactory =
-                new ThreadFactoryBuilder()
-                        .setNameFormat("MantaroShard-Command[" + shardId + "/" + totalShards + "] Thread-%d")
-                        .build();
-
-        threadPool = Executors.newCachedThreadPool(normalTPNamedFactory);
-        commandPool = Executors.newCachedThreadPool(commandTPNamedFactory);
-
-        Prometheus.THREAD_POOL_COLLECTOR.add("mantaro-shard-" + shardId + "-birthday-executor", executorService);
-        Prometheus.THREAD_POOL_COLLECTOR.add("mantaro-shard-" + shardId + "-thread-pool", threadPool);
-        Prometheus.THREAD_POOL_COLLECTOR.add("mantaro-shard-" + shardId + "-command-pool", commandPool);
+        //Shared across all shards, see ShardPools.
+        threadPool = ShardPools.threadPool();
+        commandPool = ShardPools.commandPool();
 
         log = LoggerFactory.getLogger("MantaroShard-" + shardId);
         mantaroListener = new MantaroListener(shardId, this);
@@ -143,8 +110,8 @@ public class MantaroShard implements JDA {
      * This method builds a {@link JDA} instance and then attempts to start it up.
      * This locks until the shard finds a status of AWAITING_LOGIN_CONFIRMATION + 5 seconds.
      * <p>
-     * The newly-started shard will have auto reconnect enabled, a core pool size of 18 and a new NAS instance. The rest is defined either on global or instance
-     * variables.
+     * The newly-started shard will have auto reconnect enabled and a new NAS instance. The callback and ratelimit pools are the process-wide ones
+     * from {@link ShardPools}, so restarting a shard doesn't create (or shut down) any of them. The rest is defined either on global or instance variables.
      *
      * @param force Whether we will call {@link JDA#shutdown()} or {@link JDA#shutdownNow()}
      * @throws RateLimitedException
@@ -165,22 +132,12 @@ public class MantaroShard implements JDA {
             removeListeners();
         }
 
-        ThreadPoolExecutor callbackPool;
-        ScheduledThreadPoolExecutor ratelimitPool;
-        synchronized(this) {
-            callbackPool = (ThreadPoolExecutor) Executors.newFixedThreadPool(15);
-            ratelimitPool = (ScheduledThreadPoolExecutor) Executors.newScheduledThreadPool(config.ratelimitPoolSize);
-            Prometheus.THREAD_POOL_COLLECTOR.remove(callbackPoolIdentifierString);
-            Prometheus.THREAD_POOL_COLLECTOR.add(callbackPoolIdentifierString, callbackPool);
-            Prometheus.THREAD_POOL_COLLECTOR.remove(ratelimitPoolIdentifierString);
-            Prometheus.THREAD_POOL_COLLECTOR.add(ratelimitPoolIdentifierString, ratelimitPool);
-        }
-
         JDABuilder jdaBuilder = new JDABuilder(AccountType.BOT)
                 .setToken(config().get().token)
                 .setAutoReconnect(true)
-                .setRateLimitPool(ratelimitPool, true)
-                .setCallbackPool(callbackPool, true)
+                .setRateLimitPool(ShardPools.ratelimitPool(), false)
+                .setCallbackPool(ShardPools.callbackPool(), false)
+                .setHttpClientBuilder(new OkHttpClient.Builder().addInterceptor(new RestMetrics(shardId)))
                 .setAudioSendFactory(new NativeAudioSendFactory())
                 .setEventManager(manager)
                 .setSessionController(sessionController)
@@ -212,56 +169,18 @@ public class MantaroShard implements JDA {
 
     /**
      * Starts the birthday task wait until tomorrow. When 00:00 arrives, this will call {@link BirthdayTask#handle(int)} every 24 hours.
-     * Every shard has one birthday task.
+     * Every shard has one birthday task, all of them triggered from the shared {@link ShardPools#scheduler()}.
      *
      * @param millisecondsUntilTomorrow The amount of milliseconds until 00:00.
      */
     public void startBirthdayTask(long millisecondsUntilTomorrow) {
         log.debug("Started birthday task for shard {}, scheduled to run in {} ms more", shardId, millisecondsUntilTomorrow);
 
-        executorService.scheduleWithFixedDelay(() -> birthdayTask.handle(shardId),
+        //The scheduler only triggers it, the actual work runs on the cached pool so all shards still run their birthday task in parallel.
+        ShardPools.scheduler().scheduleWithFixedDelay(() -> threadPool.execute(() -> birthdayTask.handle(shardId)),
                 millisecondsUntilTomorrow, TimeUnit.DAYS.toMillis(1), TimeUnit.MILLISECONDS);
     }
 
-    /**
-     * Updates Mantaro's "splash".
-     * Splashes are random gags like "now seen in theaters!" that show on Mantaro's status.
-     * This has been on Mantaro since 2016, so it's part of its "personality" as a bot.
-     */
-    public void updateStatus() {
-        Runnable changeStatus = () -> {
-            //insert $CURRENT_YEAR meme here
-            if(DateUtils.isSameDay(christmas, Calendar.getInstance())) {
-                getJDA().getPresence().setGame(Game.playing(String.format("%shelp | %s | [%d]", config().get().prefix[0], "Merry Christmas!", getId())));
-                return;
-            } else if (DateUtils.isSameDay(newYear, Calendar.getInstance())) {
-                getJDA().getPresence().setGame(Game.playing(String.format("%shelp | %s | [%d]", config().get().prefix[0], "Happy New Year!", getId())));
-                return;
-            }
-
-            AtomicInteger users = new AtomicInteger(0), guilds = new AtomicInteger(0);
-            if(MantaroBot.getInstance() != null) {
-                Arrays.stream(MantaroBot.getInstance().getShardedMantaro().getShards()).filter(Objects::nonNull).map(MantaroShard::getJDA).forEach(jda -> {
-                    users.addAndGet((int) jda.getUserCache().size());
-                    guilds.addAndGet((int) jda.getGuildCache().size());
-                });
-            }
-            String newStatus = new JSONObject(Utils.wgetResty(config.apiTwoUrl + "/mantaroapi/splashes/random", null)).getString("splash")
-                    .replace("%ramgb%", String.valueOf(((long) (Runtime.getRuntime().maxMemory() * 1.2D)) >> 30L))
-                    .replace("%usercount%", users.toString())
-                    .replace("%guildcount%", guilds.toString())
-                    .replace("%shardcount%", String.valueOf(getTotalShards()))
-                    .replace("%prettyusercount%", pretty(users.get()))
-                    .replace("%prettyguildcount%", pretty(guilds.get()));
-
-            getJDA().getPresence().setGame(Game.playing(String.format("%shelp | %s | [%d]", config().get().prefix[0], newStatus, getId())));
-            log.debug("Changed status to: " + newStatus);
-        };
-
-        changeStatus.run();
-        Async.task("Splash Thread", changeStatus, 10, TimeUnit.MINUTES);
-    }
-
     /**
      * @return The current {@link MantaroEventManager} for this specific instance.
      */
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2016-2018 David Alejandro Rubio Escares / Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro.  If not, see http://www.gnu.org/licenses/
+ */
+
+package net.kodehawa.mantarobot.core.shard;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import net.kodehawa.mantarobot.core.listeners.entities.CachedMessage;
+import net.kodehawa.mantarobot.data.GuildSettings;
+import net.kodehawa.mantarobot.data.MantaroData;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Messages of a shard, remembered so the edit and delete logs can show what the message said before.
+ * <p>
+ * Only guilds with a log channel get their messages cached (the rest would never read them back), which is most of what used to fill the cache.
+ * Messages are keyed by their id as a long and store their content as UTF-8, and the cache is bounded by the memory its messages use instead of by
+ * how many there are, so a few huge messages can't push everything else out and small ones don't waste the space.
+ * Whether a guild has a log channel comes from its {@link GuildSettings}.
+ */
+public class MessageCache {
+    private static final Gauge bytes = Gauge.build()
+            .name("message_cache_bytes").help("Estimated memory used by the message cache of each shard")
+            .labelNames("shard")
+            .register();
+    private static final Gauge size = Gauge.build()
+            .name("message_cache_size").help("Messages on the message cache of each shard")
+            .labelNames("shard")
+            .register();
+    private static final Counter lookups = Counter.build()
+            .name("message_cache_lookups").help("Message cache lookups from the edit and delete logs, by result (hit, miss)")
+            .labelNames("result")
+            .register();
+
+    private final Cache<Long, CachedMessage> messages;
+    private final AtomicLong used = new AtomicLong();
+    private final Gauge.Child bytesChild;
+    private final Gauge.Child sizeChild;
+
+    public MessageCache(int shardId) {
+        String shard = String.valueOf(shardId);
+        this.bytesChild = bytes.labels(shard);
+        this.sizeChild = size.labels(shard);
+        this.messages = CacheBuilder.newBuilder()
+                .concurrencyLevel(5)
+                .maximumWeight(Math.max(1, MantaroData.config().get().messageCacheBytes))
+                .<Long, CachedMessage>weigher((id, message) -> message.size())
+                .removalListener(notification -> {
+                    //Replaced entries were already accounted for by put().
+                    if(notification.getCause() != RemovalCause.REPLACED)
+                        removed(notification.getValue());
+                })
+                .build();
+    }
+
+    /**
+     * Caches a message, if its guild logs edits and deletes.
+     */
+    public void put(String guildId, long messageId, long authorId, String content) {
+        if(!GuildSettings.of(guildId).isLogging())
+            return;
+
+        CachedMessage message = new CachedMessage(authorId, content);
+        CachedMessage old = messages.asMap().put(messageId, message);
+        bytesChild.set(used.addAndGet(message.size() - (old == null ? 0 : old.size())));
+        if(old == null)
+            sizeChild.inc();
+    }
+
+    /**
+     * @return The cached message, or null if we don't have it.
+     */
+    public CachedMessage get(long messageId) {
+        CachedMessage message = messages.getIfPresent(messageId);
+        lookups.labels(message == null ? "miss" : "hit").inc();
+        return message;
+    }
+
+    public void remove(long messageId) {
+        messages.invalidate(messageId);
+    }
+
+    private void removed(CachedMessage message) {
+        bytesChild.set(used.addAndGet(-message.size()));
+        sizeChild.dec();
+    }
+}
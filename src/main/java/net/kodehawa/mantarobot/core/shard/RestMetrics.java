@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2016-2018 David Alejandro Rubio Escares / Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro.  If not, see http://www.gnu.org/licenses/
+ */
+
+package net.kodehawa.mantarobot.core.shard;
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Histogram;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Records every request JDA makes to Discord, by route: latency, responses, rate limits and the requests JDA will retry.
+ * <p>
+ * It sits on the HTTP client of each shard, under JDA's requester, so it sees every attempt (including the 429s and server errors JDA retries on
+ * its own, which never reach {@link net.dv8tion.jda.core.events.http.HttpRequestEvent}). Routes are labelled by their template
+ * ({@code channels/{id}/messages/{id}/reactions/{emoji}/@me}), never by their URL, so the amount of label values stays bounded.
+ * <p>
+ * How long requests wait on the ratelimit pool as a whole is on {@code executor_queue_wait_seconds{executor="shard-ratelimit-pool"}}. What a route
+ * adds on top of that is the wait Discord asks for when it rate limits us, which is on {@code discord_rest_ratelimit_wait_seconds}.
+ */
+public class RestMetrics implements Interceptor {
+    private static final Histogram latency = Histogram.build()
+            .name("discord_rest_request_seconds").help("Time Discord took to answer a request, by method and route")
+            .labelNames("method", "route")
+            .buckets(.05, .1, .25, .5, 1, 2.5, 5, 10)
+            .register();
+    private static final Counter responses = Counter.build()
+            .name("discord_rest_responses").help("Responses from Discord, by method, route and status (2xx, 4xx, 429, 5xx, error)")
+            .labelNames("method", "route", "status")
+            .register();
+    private static final Counter ratelimited = Counter.build()
+            .name("discord_rest_ratelimited").help("Requests rate limited by Discord, by method, route and scope (route, global)")
+            .labelNames("method", "route", "scope")
+            .register();
+    private static final Counter globalRatelimits = Counter.build()
+            .name("discord_rest_global_ratelimits").help("Global rate limits hit, by shard")
+            .labelNames("shard")
+            .register();
+    private static final Histogram ratelimitWait = Histogram.build()
+            .name("discord_rest_ratelimit_wait_seconds").help("Time Discord asked us to wait before retrying a rate limited request, by route")
+            .labelNames("route")
+            .buckets(.05, .1, .25, .5, 1, 2.5, 5, 10, 30, 60)
+            .register();
+    private static final Counter retries = Counter.build()
+            .name("discord_rest_retries").help("Requests JDA retries, by method, route and reason (ratelimit, server_error)")
+            .labelNames("method", "route", "reason")
+            .register();
+
+    private final String shard;
+
+    public RestMetrics(int shardId) {
+        this.shard = String.valueOf(shardId);
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        String method = request.method();
+        String route = route(request.url().encodedPathSegments());
+        long start = System.nanoTime();
+
+        Response response;
+        try {
+            response = chain.proceed(request);
+        } catch(IOException e) {
+            responses.labels(method, route, "error").inc();
+            throw e;
+        }
+
+        latency.labels(method, route).observe((System.nanoTime() - start) / 1e9);
+        int code = response.code();
+        responses.labels(method, route, code == 429 ? "429" : (code / 100) + "xx").inc();
+
+        if(code == 429) {
+            boolean global = response.header("X-RateLimit-Global") != null;
+            ratelimited.labels(method, route, global ? "global" : "route").inc();
+            if(global)
+                globalRatelimits.labels(shard).inc();
+
+            String retryAfter = response.header("Retry-After");
+            if(retryAfter != null) {
+                try {
+                    //Milliseconds on the API version JDA 3 uses.
+                    ratelimitWait.labels(route).observe(Long.parseLong(retryAfter) / 1000D);
+                } catch(NumberFormatException ignored) { }
+            }
+
+            retries.labels(method, route, "ratelimit").inc();
+        } else if(code >= 500) {
+            retries.labels(method, route, "server_error").inc();
+        }
+
+        return response;
+    }
+
+    /**
+     * Turns the path of a request into its route template: {@code /api/v6/channels/1234/messages} into {@code channels/{id}/messages}.
+     * Ids, emojis, invite codes, tokens and anything else that doesn't look like a fixed part of a route get replaced.
+     */
+    static String route(List<String> segments) {
+        StringBuilder route = new StringBuilder();
+        int i = 0;
+        //Skip the /api/v6 prefix.
+        if(segments.size() > 0 && segments.get(0).equals("api"))
+            i++;
+        if(segments.size() > i && segments.get(i).matches("v\\d+"))
+            i++;
+
+        String previous = "";
+        String beforePrevious = "";
+        for(; i < segments.size(); i++) {
+            String segment = segments.get(i);
+            if(segment.isEmpty())
+                continue;
+
+            String part;
+            if(isId(segment))
+                part = "{id}";
+            else if(previous.equals("reactions"))
+                part = "{emoji}";
+            else if(previous.equals("invites") || previous.equals("invite"))
+                part = "{code}";
+            else if(beforePrevious.equals("webhooks") && isId(previous))
+                part = "{token}";
+            else if(!isFixed(segment))
+                part = "{param}";
+            else
+                part = segment;
+
+            if(route.length() > 0)
+                route.append('/');
+            route.append(part);
+            beforePrevious = previous;
+            previous = segment;
+        }
+
+        return route.toString();
+    }
+
+    private static boolean isId(String segment) {
+        for(int i = 0; i < segment.length(); i++) {
+            if(!Character.isDigit(segment.charAt(i)))
+                return false;
+        }
+
+        return !segment.isEmpty();
+    }
+
+    //Fixed parts of routes are lowercase words, like messages, bulk-delete, audit-logs or @me.
+    private static boolean isFixed(String segment) {
+        if(segment.length() > 32)
+            return false;
+
+        for(int i = 0; i < segment.length(); i++) {
+            char c = segment.charAt(i);
+            if(!(c >= 'a' && c <= 'z') && c != '-' && c != '_' && c != '@')
+                return false;
+        }
+
+        return true;
+    }
+}
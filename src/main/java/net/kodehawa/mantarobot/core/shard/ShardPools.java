@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2016-2018 David Alejandro Rubio Escares / Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro.  If not, see http://www.gnu.org/licenses/
+ */
+
+package net.kodehawa.mantarobot.core.shard;
+
+import net.kodehawa.mantarobot.core.MantaroExecutors;
+import net.kodehawa.mantarobot.data.Config;
+import net.kodehawa.mantarobot.data.MantaroData;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Process-wide thread pools shared by every {@link MantaroShard} running on this node.
+ * <p>
+ * Before this every shard built its own callback, ratelimit, scheduled and cached pools, so the thread count grew linearly with the shard count
+ * (a node running 100+ shards ended up with thousands of mostly idle threads). The sizes of the pools are taken from {@link Config}
+ * and don't depend on how many shards we start. They are created through {@link MantaroExecutors}, so they count towards the global thread budget.
+ * <p>
+ * The pools are handed to JDA with automatic shutdown disabled, as a shard restart must never kill the pools the rest of the shards are using.
+ */
+public final class ShardPools {
+    private static final Config config = MantaroData.config().get();
+
+    //JDA RestAction callbacks (success/failure consumers).
+    private static final ExecutorService CALLBACK_POOL = MantaroExecutors.fixed("shard-callback-pool", Math.max(1, config.sharedCallbackPoolSize));
+    //JDA requester/ratelimiter. Also runs every queueAfter/completeAfter call.
+    private static final ScheduledExecutorService RATELIMIT_POOL = MantaroExecutors.scheduled("shard-ratelimit-pool", Math.max(1, config.sharedRatelimitPoolSize));
+    //Listener work that was offloaded from the event thread (join/leave messages, link protection, logs).
+    private static final ExecutorService THREAD_POOL = MantaroExecutors.fixed("shard-thread-pool", Math.max(1, config.sharedThreadPoolSize));
+    //Command execution.
+    private static final ExecutorService COMMAND_POOL = MantaroExecutors.fixed("shard-command-pool", Math.max(1, config.sharedCommandPoolSize));
+
+    private ShardPools() {}
+
+    public static ExecutorService callbackPool() {
+        return CALLBACK_POOL;
+    }
+
+    public static ScheduledExecutorService ratelimitPool() {
+        return RATELIMIT_POOL;
+    }
+
+    /**
+     * @return The process-wide timer. Shard-specific scheduled work (birthday tasks, status updates) only gets triggered here.
+     */
+    public static ScheduledExecutorService scheduler() {
+        return MantaroExecutors.timer();
+    }
+
+    public static ExecutorService threadPool() {
+        return THREAD_POOL;
+    }
+
+    public static ExecutorService commandPool() {
+        return COMMAND_POOL;
+    }
+}
@@ -21,13 +21,12 @@ import com.github.natanbc.discordbotsapi.DiscordBotsAPI;
 import io.prometheus.client.Gauge;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
-import net.dv8tion.jda.core.entities.VoiceChannel;
-import net.dv8tion.jda.core.utils.cache.SnowflakeCacheView;
 import net.kodehawa.mantarobot.MantaroBot;
 import net.kodehawa.mantarobot.MantaroInfo;
 import net.kodehawa.mantarobot.core.LoadState;
 import net.kodehawa.mantarobot.core.MantaroCore;
 import net.kodehawa.mantarobot.core.MantaroEventManager;
+import net.kodehawa.mantarobot.core.MantaroExecutors;
 import net.kodehawa.mantarobot.core.listeners.events.PostLoadEvent;
 import net.kodehawa.mantarobot.core.processor.core.ICommandProcessor;
 import net.kodehawa.mantarobot.core.shard.watcher.ShardWatcher;
@@ -76,6 +75,8 @@ public class ShardedMantaro {
     private final int totalShards;
     private final int fromShard;
     private final int toShard;
+    @Getter
+    private final StatusAggregator statusAggregator;
 
     public ShardedMantaro(int totalShards, boolean isDebug, boolean auto, String token, ICommandProcessor commandProcessor, int fromShard, int toShard) {
         int shardAmount = totalShards;
@@ -89,6 +90,7 @@ public class ShardedMantaro {
         this.fromShard = fromShard;
         this.toShard = toShard;
         this.shards = new MantaroShard[this.totalShards];
+        this.statusAggregator = new StatusAggregator(this);
     }
 
     private static int getRecommendedShards(String token) {
@@ -168,26 +170,23 @@ public class ShardedMantaro {
         startUpdaters();
         bot.startCheckingBirthdays();
 
-        Async.task(() -> {
-            try {
-                SnowflakeCacheView<VoiceChannel> vc = MantaroBot.getInstance().getVoiceChannelCache();
-                activeMusicPlayers.set(vc.stream().filter(voiceChannel -> voiceChannel.getMembers().contains(voiceChannel.getGuild().getSelfMember())).count());
-            } catch (Exception ignored) {} //Avoid the scheduled task to unexpectedly end on exception (probably ConcurrentModificationException but let's just catch all errors)
-        }, 20, TimeUnit.SECONDS);
+        //Kept up to date by the audio manager, this only reads it.
+        MantaroExecutors.timer().scheduleAtFixedRate(() -> activeMusicPlayers.set(bot.getAudioManager().getConnectedGuilds().size()), 0, 20, TimeUnit.SECONDS);
     }
 
     private void startUpdaters() {
-        Async.task("Carbonitex post task", carbonitex::handle, 30, TimeUnit.MINUTES);
+        //All of these do blocking HTTP requests, so the timer only hands them to the common pool.
+        MantaroExecutors.timer().scheduleAtFixedRate(() -> MantaroExecutors.common().execute(carbonitex::handle), 0, 30, TimeUnit.MINUTES);
 
         if(config.dbotsorgToken != null) {
-            Async.task("dbots.org update thread", () -> {
+            MantaroExecutors.timer().scheduleAtFixedRate(() -> MantaroExecutors.common().execute(() -> {
                 try {
                     long count = MantaroBot.getInstance().getGuildCache().size();
                     int[] shards = MantaroBot.getInstance().getShardList().stream().mapToInt(shard -> (int) shard.getGuildCache().size()).toArray();
                     discordBotsAPI.postStats(shards).execute();
                     log.debug("Updated server count ({}) for discordbots.org", count);
                 } catch(Exception ignored) {}
-            }, 1, TimeUnit.HOURS);
+            }), 0, 1, TimeUnit.HOURS);
         } else {
             log.warn("discordbots.org token not set in config, cannot start posting stats!");
         }
@@ -195,7 +194,7 @@ public class ShardedMantaro {
         String dbotsToken = config.dbotsToken;
 
         if(dbotsToken != null) {
-            Async.task("bots.discord.pw update Thread", () -> {
+            MantaroExecutors.timer().scheduleAtFixedRate(() -> MantaroExecutors.common().execute(() -> {
                 try {
                     long count = MantaroBot.getInstance().getGuildCache().size();
                     RequestBody body = RequestBody.create(JSON, new JSONObject().put("server_count", count).toString());
@@ -210,11 +209,9 @@ public class ShardedMantaro {
                     Utils.httpClient.newCall(request).execute().close();
                     log.debug("Updated server count for bots.discord.pw");
                 } catch(Exception ignored) { }
-            }, 1, TimeUnit.HOURS);
+            }), 0, 1, TimeUnit.HOURS);
         }
 
-        for(MantaroShard shard : getShards()) {
-            shard.updateStatus();
-        }
+        statusAggregator.start();
     }
 }
@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2016-2018 David Alejandro Rubio Escares / Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro.  If not, see http://www.gnu.org/licenses/
+ */
+
+package net.kodehawa.mantarobot.core.shard;
+
+import io.prometheus.client.Gauge;
+import lombok.extern.slf4j.Slf4j;
+import net.dv8tion.jda.core.JDA;
+import net.dv8tion.jda.core.entities.Game;
+import net.kodehawa.mantarobot.MantaroBot;
+import net.kodehawa.mantarobot.core.MantaroCore;
+import net.kodehawa.mantarobot.data.Config;
+import net.kodehawa.mantarobot.data.MantaroData;
+import net.kodehawa.mantarobot.utils.Utils;
+import org.apache.commons.lang3.time.DateUtils;
+import org.json.JSONObject;
+
+import java.util.Calendar;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static net.kodehawa.mantarobot.utils.Utils.pretty;
+
+/**
+ * Keeps the guild and user counts of every shard on this node and updates Mantaro's "splash" on all of them.
+ * Splashes are random gags like "now seen in theaters!" that show on Mantaro's status.
+ * This has been on Mantaro since 2016, so it's part of its "personality" as a bot.
+ * <p>
+ * Guild counts are sampled from the shard's own cache (an O(1) read) whenever {@link net.kodehawa.mantarobot.core.listeners.MantaroListener} sees a
+ * ready, reconnect or guild join/leave event, so reading the total is a single pass over a primitive array instead of walking all shards from every
+ * shard. Users can be on more than one shard, so their count is the distinct count over every shard's cache, which is too expensive for every event:
+ * it's resampled every {@link #RESAMPLE_MINUTES} minutes instead, along with every shard's guild count in case an event got missed.
+ * The splash is fetched once per cycle (falling back to the last one we got if the API doesn't answer) and pushed to each shard with a small
+ * delay between them, to avoid every shard updating its presence at the exact same time.
+ */
+@Slf4j
+public class StatusAggregator {
+    private static final Gauge guildCount = Gauge.build()
+            .name("guilds").help("Guild Count")
+            .register();
+    private static final Gauge userCount = Gauge.build()
+            .name("users").help("User Count")
+            .register();
+
+    private static final long RESAMPLE_MINUTES = 1;
+    //Delay between pushing the presence of one shard and the next one.
+    private static final long PACE_MS = 150;
+    private static final String DEFAULT_SPLASH = "Hold on to your seatbelts!";
+
+    //Christmas date
+    private static final Calendar christmas = new Calendar.Builder().setDate(Calendar.getInstance().get(Calendar.YEAR), Calendar.DECEMBER, 25).build();
+    //New year date
+    private static final Calendar newYear = new Calendar.Builder().setDate(Calendar.getInstance().get(Calendar.YEAR), Calendar.JANUARY, 1).build();
+
+    private final Config config = MantaroData.config().get();
+    private final ShardedMantaro shardedMantaro;
+    private final AtomicLongArray guilds;
+    private volatile long users;
+    private volatile String lastSplash = DEFAULT_SPLASH;
+
+    public StatusAggregator(ShardedMantaro shardedMantaro) {
+        this.shardedMantaro = shardedMantaro;
+        this.guilds = new AtomicLongArray(shardedMantaro.getTotalShards());
+    }
+
+    /**
+     * Re-samples the guild count of a shard. Cheap enough to be called from the event thread.
+     *
+     * @param shardId The id of the shard that changed.
+     * @param jda     The JDA instance of the shard.
+     */
+    public void update(int shardId, JDA jda) {
+        if(shardId < 0 || shardId >= guilds.length())
+            return;
+
+        guilds.set(shardId, jda.getGuildCache().size());
+        if(MantaroCore.hasLoadedCompletely())
+            guildCount.set(getGuildCount());
+    }
+
+    public long getGuildCount() {
+        return sum(guilds);
+    }
+
+    /**
+     * @return The distinct users on every shard, as of the last resample.
+     */
+    public long getUserCount() {
+        return users;
+    }
+
+    /**
+     * Starts updating the status of every shard every 10 minutes, and resampling the counts every {@link #RESAMPLE_MINUTES} minutes.
+     */
+    public void start() {
+        //Seed the counts in case a shard got ready before we were listening, and so the first splash has them.
+        resample();
+        ShardPools.scheduler().scheduleAtFixedRate(() -> ShardPools.threadPool().execute(this::resample), RESAMPLE_MINUTES, RESAMPLE_MINUTES, TimeUnit.MINUTES);
+        ShardPools.scheduler().scheduleWithFixedDelay(() -> ShardPools.threadPool().execute(this::updateStatus), 0, 10, TimeUnit.MINUTES);
+    }
+
+    private void resample() {
+        try {
+            for(MantaroShard shard : shardedMantaro.getShards()) {
+                if(shard != null && shard.getJDA() != null)
+                    update(shard.getId(), shard.getJDA());
+            }
+
+            //The unified view counts users on more than one shard once.
+            users = MantaroBot.getInstance().getUserCache().size();
+            if(MantaroCore.hasLoadedCompletely())
+                userCount.set(users);
+        } catch(Exception e) {
+            log.warn("Unable to resample the guild and user counts", e);
+        }
+    }
+
+    private void updateStatus() {
+        try {
+            String splash = nextSplash();
+            MantaroShard[] shards = shardedMantaro.getShards();
+
+            long delay = 0;
+            for(MantaroShard shard : shards) {
+                if(shard == null)
+                    continue;
+
+                ShardPools.scheduler().schedule(() -> setStatus(shard, splash), delay, TimeUnit.MILLISECONDS);
+                delay += PACE_MS;
+            }
+
+            log.debug("Changed status to: " + splash);
+        } catch(Exception e) {
+            log.warn("Unable to update the status of the shards", e);
+        }
+    }
+
+    private String nextSplash() {
+        //insert $CURRENT_YEAR meme here
+        if(DateUtils.isSameDay(christmas, Calendar.getInstance())) {
+            return "Merry Christmas!";
+        } else if(DateUtils.isSameDay(newYear, Calendar.getInstance())) {
+            return "Happy New Year!";
+        }
+
+        String raw = null;
+        try {
+            String response = Utils.wgetResty(config.apiTwoUrl + "/mantaroapi/splashes/random", null);
+            if(response != null)
+                raw = new JSONObject(response).getString("splash");
+        } catch(Exception e) {
+            log.warn("Unable to fetch a new splash, using the last one", e);
+        }
+
+        if(raw == null)
+            raw = lastSplash;
+        else
+            lastSplash = raw;
+
+        long users = getUserCount(), guilds = getGuildCount();
+        return raw.replace("%ramgb%", String.valueOf(((long) (Runtime.getRuntime().maxMemory() * 1.2D)) >> 30L))
+                .replace("%usercount%", String.valueOf(users))
+                .replace("%guildcount%", String.valueOf(guilds))
+                .replace("%shardcount%", String.valueOf(shardedMantaro.getTotalShards()))
+                .replace("%prettyusercount%", pretty((int) users))
+                .replace("%prettyguildcount%", pretty((int) guilds));
+    }
+
+    private void setStatus(MantaroShard shard, String splash) {
+        try {
+            JDA jda = shard.getJDA();
+            if(jda == null || jda.getStatus() != JDA.Status.CONNECTED)
+                return;
+
+            jda.getPresence().setGame(Game.playing(String.format("%shelp | %s | [%d]", config.prefix[0], splash, shard.getId())));
+        } catch(Exception e) {
+            log.debug("Unable to set the status of shard {}", shard.getId(), e);
+        }
+    }
+
+    private static long sum(AtomicLongArray array) {
+        long total = 0;
+        for(int i = 0; i < array.length(); i++) {
+            total += array.get(i);
+        }
+
+        return total;
+    }
+}
@@ -21,13 +21,13 @@ import net.dv8tion.jda.core.JDA;
 import net.dv8tion.jda.core.entities.impl.JDAImpl;
 import net.kodehawa.mantarobot.MantaroBot;
 import net.kodehawa.mantarobot.core.MantaroEventManager;
+import net.kodehawa.mantarobot.core.MantaroExecutors;
 import net.kodehawa.mantarobot.core.listeners.events.EventUtils;
 import net.kodehawa.mantarobot.core.listeners.events.ShardMonitorEvent;
 import net.kodehawa.mantarobot.core.shard.MantaroShard;
 import net.kodehawa.mantarobot.core.shard.ShardedMantaro;
 import net.kodehawa.mantarobot.data.MantaroData;
 import net.kodehawa.mantarobot.log.LogUtils;
-import net.kodehawa.mantarobot.utils.Prometheus;
 
 import java.util.Arrays;
 import java.util.concurrent.*;
@@ -54,20 +54,15 @@ public class ShardWatcher implements Runnable {
 
     //The pool that will run the FutureTask to wait for the shard to finish its pre-load phase.
     //No longer needed?
-    private final ExecutorService THREAD_POOL = Executors.newCachedThreadPool();
+    private final ExecutorService THREAD_POOL = MantaroExecutors.fixed("shard-watcher", 1);
     //The scheduler that manages the wait between one shard being resumed and the backoff period to check if it successfully revived.
-    private final ScheduledExecutorService RESUME_WAITER = Executors.newScheduledThreadPool(1);
+    private final ScheduledExecutorService RESUME_WAITER = MantaroExecutors.timer();
     //The queue where shards that didn't get revived used a RESUME get added. Here they get completely scrapped and re-built when they get polled from the queue.
     private final ConcurrentLinkedQueue<MantaroShard> RESTART_QUEUE = new ConcurrentLinkedQueue<>();
 
     //Mantaro's sharded instance
     private ShardedMantaro shardedMantaro;
 
-    public ShardWatcher() {
-        Prometheus.THREAD_POOL_COLLECTOR.add("shard-watcher-thread-pool", THREAD_POOL);
-        Prometheus.THREAD_POOL_COLLECTOR.add("shard-watcher-resume-waiter", RESUME_WAITER);
-    }
-
     @Override
     public void run() {
         LogUtils.shard("ShardWatcherThread started");
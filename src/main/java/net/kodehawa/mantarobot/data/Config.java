@@ -78,7 +78,22 @@ public class Config {
     //we need an actual callback url here? yikes.
     public String patreonRedirectUri = "https://mantaro.site";
     public int prometheusPort = 9091;
-    public int ratelimitPoolSize = 4;
+    //Process-wide pools shared by all shards, see ShardPools. These don't scale with the shard count.
+    public int sharedCallbackPoolSize = 20;
+    public int sharedRatelimitPoolSize = 16;
+    public int sharedThreadPoolSize = 64;
+    public int sharedCommandPoolSize = 100;
+    //Maximum amount of threads all the pools created through MantaroExecutors can use together.
+    public int threadBudget = 320;
+    public int timerPoolSize = 4;
+    public int commonPoolSize = 16;
+    //Maximum amount of guilds with their custom commands cached, and minutes until an idle guild gets evicted.
+    public int customCommandCacheSize = 10000;
+    public int customCommandCacheExpiry = 30;
+    //Memory each shard can use to remember messages for the edit and delete logs, in bytes.
+    public long messageCacheBytes = 1024 * 1024;
+    //Minutes a guild's music player can stay idle and disconnected before it gets evicted.
+    public int musicManagerIdleMinutes = 15;
 
     public boolean isOwner(Member member) {
         return isOwner(member.getUser());
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2016-2018 David Alejandro Rubio Escares / Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro.  If not, see http://www.gnu.org/licenses/
+ */
+
+package net.kodehawa.mantarobot.data;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import lombok.Getter;
+import net.kodehawa.mantarobot.core.listeners.LinkProtection;
+import net.kodehawa.mantarobot.db.entities.helpers.GuildData;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The settings of a guild we check on every message (language, log channel and link protection), kept in memory so those checks don't read the
+ * guild from the database.
+ * <p>
+ * Call {@link #update(String, GuildData)} whenever any of them change, or when we already have the guild's data around.
+ */
+@Getter
+public final class GuildSettings {
+    private static final Cache<Long, GuildSettings> GUILDS = CacheBuilder.newBuilder()
+            .maximumSize(100000)
+            .expireAfterAccess(1, TimeUnit.HOURS)
+            .build();
+
+    //"" when the guild doesn't have one.
+    private final String lang;
+    //null when the guild doesn't have one.
+    private final String logChannel;
+    private final LinkProtection linkProtection;
+
+    private GuildSettings(String lang, String logChannel, LinkProtection linkProtection) {
+        this.lang = lang;
+        this.logChannel = logChannel;
+        this.linkProtection = linkProtection;
+    }
+
+    /**
+     * @return The settings of a guild. Reads the guild from the database the first time (or after a while without using them).
+     */
+    public static GuildSettings of(String guildId) {
+        GuildSettings settings = GUILDS.getIfPresent(Long.parseLong(guildId));
+        if(settings == null)
+            settings = update(guildId, MantaroData.db().getGuild(guildId).getData());
+
+        return settings;
+    }
+
+    /**
+     * Remembers the settings of a guild. Call this whenever they change, or when we already have its data around.
+     */
+    public static GuildSettings update(String guildId, GuildData data) {
+        GuildSettings settings = new GuildSettings(data.getLang() == null ? "" : data.getLang(), data.getGuildLogChannel(), LinkProtection.from(data));
+        GUILDS.put(Long.parseLong(guildId), settings);
+        return settings;
+    }
+
+    public boolean isLogging() {
+        return logChannel != null;
+    }
+}
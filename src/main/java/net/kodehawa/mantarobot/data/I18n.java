@@ -17,6 +17,10 @@
 package net.kodehawa.mantarobot.data;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.prometheus.client.Gauge;
+import lombok.extern.slf4j.Slf4j;
 import net.dv8tion.jda.core.entities.Guild;
 import net.dv8tion.jda.core.entities.User;
 import net.dv8tion.jda.core.events.guild.GenericGuildEvent;
@@ -27,78 +31,79 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Localized strings.
+ * <p>
+ * Languages are loaded the first time something asks for them, so we don't parse (and keep around) languages nobody uses. All of them share a
+ * single key index built from en_US: a language is just an array of strings in the same order, with the keys it doesn't translate pointing at the
+ * en_US strings, so adding a language costs one array plus the strings it actually translates. Looking up a key is a single hash probe on the
+ * shared index and an array read.
+ */
+@Slf4j
 public class I18n {
+    private static final Gauge languageBytes = Gauge.build()
+            .name("i18n_language_bytes").help("Estimated memory used by each loaded language")
+            .labelNames("language")
+            .register();
+    private static final Gauge languageKeys = Gauge.build()
+            .name("i18n_language_keys").help("Keys translated by each loaded language (the rest fall back to en_US)")
+            .labelNames("language")
+            .register();
+
     public static final List<String> LANGUAGES = new ArrayList<>();
     private static final ThreadLocal<String> ROOT = new ThreadLocal<>();
-    private static final Map<String, I18n> LANGUAGE_MAP;
-    private final Map<String, ?> map;
+    private static final Set<String> LANGUAGE_NAMES;
+    private static final ConcurrentMap<String, I18n> LANGUAGE_MAP = new ConcurrentHashMap<>();
+    //Language codes of users ("" when they don't have one), so resolving a language doesn't read the database every time. Guilds keep theirs on
+    //GuildSettings.
+    private static final Cache<String, String> USER_LANGUAGES = CacheBuilder.newBuilder()
+            .maximumSize(100000)
+            .expireAfterAccess(1, TimeUnit.HOURS)
+            .build();
+    private final String[] values;
+    //Keys that en_US doesn't have. Almost always empty.
+    private final Map<String, String> extra;
     private final String language;
 
     static {
-        Map<String, I18n> m = new HashMap<>();
-        ObjectMapper mapper = new ObjectMapper();
+        Set<String> names = new HashSet<>();
         try(InputStream is = I18n.class.getResourceAsStream("/assets/languages/list.txt")) {
             for(String s : IOUtils.toString(is, StandardCharsets.UTF_8).trim().split("\n")) {
                 String language = s.trim();
                 LANGUAGES.add(language);
+                names.add(language.replace(".json", ""));
             }
 
         } catch(IOException e) {
             throw new ExceptionInInitializerError(e);
         }
 
-        for(String s : LANGUAGES) {
-            InputStream is = I18n.class.getResourceAsStream("/assets/languages/" + s);
-            try {
-                @SuppressWarnings("unchecked")
-                Map<String, ?> map = (Map<String, ?>)mapper.readValue(is, Map.class);
-                m.put(s.replace(".json", ""), new I18n(map, s));
-            } catch(Exception e) {
-                throw new Error("Unable to initialize I18n", e);
-            }
-        }
-        LANGUAGE_MAP = Collections.unmodifiableMap(m);
+        LANGUAGE_NAMES = Collections.unmodifiableSet(names);
     }
 
-    private I18n(Map<String, ?> map, String language) {
-        this.map = map;
+    private I18n(String[] values, Map<String, String> extra, String language) {
+        this.values = values;
+        this.extra = extra;
         this.language = language;
     }
 
-    @SuppressWarnings("unchecked")
-    private String get(Map<String, ?> map, String[] parts, boolean recursion) {
-        int index = 0;
-        while(index != parts.length - 1) {
-            Object maybeMap = map.get(parts[index]);
-            if(maybeMap instanceof Map) {
-                map = (Map<String, ?>)maybeMap;
-                index++;
-            } else {
-                if(language.equals("en_US") || recursion) throw new LanguageKeyNotFoundException("Missing i18n key " + Arrays.stream(parts).collect(Collectors.joining(".")));
-                return get(LANGUAGE_MAP.get("en_US").map, parts, true);
-            }
-        }
-        Object maybeString = map.get(parts[index]);
-        if(maybeString instanceof String) {
-            return (String)maybeString;
-        }
-        if(language.equals("en_US") || recursion)
-            throw new LanguageKeyNotFoundException("Missing i18n key " + Arrays.stream(parts).collect(Collectors.joining(".")));
+    public String get(String query) {
+        String root = ROOT.get();
+        String key = root == null ? query : root + "." + query;
+        Integer index = English.INDEX.get(key);
+        String value = index == null ? extra.get(key) : values[index];
+        if(value == null)
+            throw new LanguageKeyNotFoundException("Missing i18n key " + key);
 
-        return get(LANGUAGE_MAP.get("en_US").map, parts, true);
+        return value;
     }
 
-    public String get(String query) {
-        String root = ROOT.get();
-        String actualQuery;
-        if(root == null) {
-            actualQuery = query;
-        } else {
-            actualQuery = root + "." + query;
-        }
-        return get(map, actualQuery.split("\\."), false);
+    public String getLanguage() {
+        return language;
     }
 
     public String withRoot(String root, String query) {
@@ -111,13 +116,24 @@ public class I18n {
         }
     }
 
+    /**
+     * Remembers the language of a user. Call this whenever the language of a user changes, or when we already have its data around.
+     */
+    public static void updateUserLanguage(String userId, String language) {
+        USER_LANGUAGES.put(userId, language == null ? "" : language);
+    }
+
     public static I18n of(String guildId) {
-        String lang = MantaroData.db().getGuild(guildId).getData().getLang();
-        return getForLanguage(lang);
+        return getForLanguage(GuildSettings.of(guildId).getLang());
     }
 
     public static I18n ofUser(String userId) {
-        String lang = MantaroData.db().getUser(userId).getData().getLang();
+        String lang = USER_LANGUAGES.getIfPresent(userId);
+        if(lang == null) {
+            lang = MantaroData.db().getUser(userId).getData().getLang();
+            updateUserLanguage(userId, lang);
+        }
+
         return getForLanguage(lang);
     }
 
@@ -126,7 +142,7 @@ public class I18n {
     }
 
     public static I18n ofUser(User user) {
-        return of(user.getId());
+        return ofUser(user.getId());
     }
 
     public static I18n of(GenericGuildEvent event) {
@@ -134,16 +150,145 @@ public class I18n {
     }
 
     public static I18n getForLanguage(String language) {
-        I18n i = LANGUAGE_MAP.get(language);
-        if(i == null) return LANGUAGE_MAP.get("en_US");
-        return i;
+        if(language == null || !LANGUAGE_NAMES.contains(language) || language.equals("en_US"))
+            return English.INSTANCE;
+
+        return LANGUAGE_MAP.computeIfAbsent(language, I18n::load);
     }
 
     public static boolean isValidLanguage(String lang) {
-        return LANGUAGE_MAP.containsKey(lang);
+        return LANGUAGE_NAMES.contains(lang);
     }
 
     public static void root(String newRoot) {
         ROOT.set(newRoot);
     }
+
+    private static I18n load(String language) {
+        Map<String, String> strings;
+        try {
+            strings = read(language);
+        } catch(Exception e) {
+            log.error("Unable to load language {}, falling back to en_US", language, e);
+            return English.INSTANCE;
+        }
+
+        String[] fallback = English.INSTANCE.values;
+        String[] values = fallback.clone();
+        Map<String, String> extra = new HashMap<>();
+        //Same translation used on several keys (or identical to en_US) is only kept once.
+        Map<String, String> pool = new HashMap<>();
+        long bytes = 16 + 4L * values.length;
+        int translated = 0;
+
+        for(Map.Entry<String, String> entry : strings.entrySet()) {
+            String value = entry.getValue();
+            Integer index = English.INDEX.get(entry.getKey());
+            if(index != null && value.equals(fallback[index])) {
+                translated++;
+                continue;
+            }
+
+            String pooled = pool.putIfAbsent(value, value);
+            if(pooled == null) {
+                pooled = value;
+                bytes += stringBytes(value);
+            }
+
+            if(index == null) {
+                extra.put(entry.getKey(), pooled);
+                bytes += stringBytes(entry.getKey()) + 32;
+            } else {
+                values[index] = pooled;
+            }
+
+            translated++;
+        }
+
+        I18n i18n = new I18n(values, extra.isEmpty() ? Collections.emptyMap() : extra, language);
+        report(language, bytes, translated);
+        log.info("Loaded language {} ({} keys, ~{} KiB)", language, translated, bytes >> 10);
+        return i18n;
+    }
+
+    private static Map<String, String> read(String language) throws IOException {
+        try(InputStream is = I18n.class.getResourceAsStream("/assets/languages/" + language + ".json")) {
+            if(is == null)
+                throw new IOException("Missing language file for " + language);
+
+            @SuppressWarnings("unchecked")
+            Map<String, ?> map = (Map<String, ?>)new ObjectMapper().readValue(is, Map.class);
+            return flatten(map);
+        }
+    }
+
+    //{"a": {"b": "c"}} -> {"a.b": "c"}. Anything that isn't a string or an object (there shouldn't be any) is skipped.
+    private static Map<String, String> flatten(Map<String, ?> map) {
+        Map<String, String> flat = new HashMap<>();
+        flatten("", map, flat);
+        return flat;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void flatten(String prefix, Map<String, ?> map, Map<String, String> flat) {
+        for(Map.Entry<String, ?> entry : map.entrySet()) {
+            String key = prefix + entry.getKey();
+            Object value = entry.getValue();
+            if(value instanceof Map) {
+                flatten(key + ".", (Map<String, ?>)value, flat);
+            } else if(value instanceof String) {
+                flat.put(key, (String)value);
+            }
+        }
+    }
+
+    //Rough size of a String: object header and fields, plus the backing array.
+    private static long stringBytes(String s) {
+        return 40 + 2L * s.length();
+    }
+
+    private static void report(String language, long bytes, int keys) {
+        languageBytes.labels(language).set(bytes);
+        languageKeys.labels(language).set(keys);
+    }
+
+    //en_US is loaded the first time any language is used, as every other language falls back to it and shares its key index.
+    private static final class English {
+        private static final Map<String, Integer> INDEX;
+        private static final I18n INSTANCE;
+
+        static {
+            Map<String, String> strings;
+            try {
+                strings = read("en_US");
+            } catch(Exception e) {
+                throw new ExceptionInInitializerError(e);
+            }
+
+            String[] keys = strings.keySet().toArray(new String[0]);
+            Arrays.sort(keys);
+            Map<String, Integer> index = new HashMap<>(keys.length * 4 / 3 + 1);
+            String[] values = new String[keys.length];
+            Map<String, String> pool = new HashMap<>();
+            //The index map: the key strings themselves plus roughly 48 bytes per entry (node, boxed index and table slot).
+            long bytes = 16 + 4L * values.length;
+            for(int i = 0; i < keys.length; i++) {
+                index.put(keys[i], i);
+                String value = strings.get(keys[i]);
+                String pooled = pool.putIfAbsent(value, value);
+                if(pooled == null) {
+                    pooled = value;
+                    bytes += stringBytes(value);
+                }
+
+                values[i] = pooled;
+                bytes += stringBytes(keys[i]) + 48;
+            }
+
+            INDEX = Collections.unmodifiableMap(index);
+            INSTANCE = new I18n(values, Collections.emptyMap(), "en_US");
+            report("en_US", bytes, keys.length);
+            log.info("Loaded language en_US ({} keys, ~{} KiB)", keys.length, bytes >> 10);
+        }
+    }
 }
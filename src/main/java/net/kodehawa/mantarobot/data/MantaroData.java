@@ -19,20 +19,18 @@ package net.kodehawa.mantarobot.data;
 import com.rethinkdb.net.Connection;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import net.kodehawa.mantarobot.core.MantaroExecutors;
 import net.kodehawa.mantarobot.db.ManagedDatabase;
-import net.kodehawa.mantarobot.utils.Prometheus;
 import net.kodehawa.mantarobot.utils.data.GsonDataManager;
 import redis.clients.jedis.JedisPool;
 
 import java.util.concurrent.Callable;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ExecutorService;
 
 import static com.rethinkdb.RethinkDB.r;
 
 @Slf4j
 public class MantaroData {
-    private static final ScheduledExecutorService exec = Executors.newScheduledThreadPool(1);
     private static GsonDataManager<Config> config;
     private static Connection conn;
     private static ManagedDatabase db;
@@ -40,10 +38,6 @@ public class MantaroData {
     @Getter
     private static JedisPool defaultJedisPool = new JedisPool("127.0.0.1", 6379);
 
-    static {
-        Prometheus.THREAD_POOL_COLLECTOR.add("mantaro-data", exec);
-    }
-
     public static GsonDataManager<Config> config() {
         if(config == null) config = new GsonDataManager<>(Config.class, "config.json", Config::new);
         return config;
@@ -69,8 +63,9 @@ public class MantaroData {
         return db;
     }
 
-    public static ScheduledExecutorService getExecutor() {
-        return exec;
+    //Single thread, so queued saves/deletes keep their order.
+    public static ExecutorService getExecutor() {
+        return MantaroExecutors.fixed("mantaro-data", 1);
     }
 
     public static void queue(Callable<?> action) {
@@ -0,0 +1,218 @@
+/*
+ * Copyright (C) 2016-2018 David Alejandro Rubio Escares / Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro.  If not, see http://www.gnu.org/licenses/
+ */
+
+package net.kodehawa.mantarobot.log;
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Histogram;
+import net.dv8tion.jda.core.MessageBuilder;
+import net.dv8tion.jda.core.entities.Message;
+import net.dv8tion.jda.core.entities.MessageEmbed;
+import net.dv8tion.jda.core.entities.TextChannel;
+import net.kodehawa.mantarobot.MantaroBot;
+import net.kodehawa.mantarobot.core.MantaroExecutors;
+import net.kodehawa.mantarobot.core.OutboundQueue;
+import net.kodehawa.mantarobot.core.OutboundQueue.Priority;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends the entries of guild log channels (edits, deletes, bans, joins, mod actions) in batches.
+ * <p>
+ * Entries wait on their channel for {@link #WINDOW_MILLIS} and then go out together: text entries are joined into as few messages as fit on
+ * Discord's limit, and embeds (only one fits per message) go one after the other. A channel only has one message in flight at a time, so a purge
+ * or a raid turns into a few messages a second on the log channel instead of hundreds of requests fighting over its rate limit. Each channel holds
+ * up to {@link #MAX_BACKLOG} entries, past that they're dropped and the next batch says how many were.
+ */
+public class LogAggregator {
+    private static final Histogram batchSize = Histogram.build()
+            .name("log_batch_entries").help("Log entries sent on a single message")
+            .buckets(1, 2, 3, 5, 10, 20, 50)
+            .register();
+    private static final Histogram batchDelay = Histogram.build()
+            .name("log_batch_delay_seconds").help("Time between a log entry being added and it being sent")
+            .buckets(.5, 1, 2, 3, 5, 10, 30, 60)
+            .register();
+    private static final Counter dropped = Counter.build()
+            .name("log_entries_dropped").help("Log entries dropped because their channel had too many waiting")
+            .register();
+
+    private static final long WINDOW_MILLIS = 2000;
+    private static final int MAX_BACKLOG = 200;
+    private static final ConcurrentMap<Long, ChannelLog> CHANNELS = new ConcurrentHashMap<>();
+
+    /**
+     * Adds a line to the log of a channel. Lines longer than a message are cut.
+     */
+    public static void log(TextChannel channel, String line) {
+        log(channel.getIdLong(), new Entry(line, null));
+    }
+
+    /**
+     * Adds an embed to the log of a channel.
+     */
+    public static void log(TextChannel channel, MessageEmbed embed) {
+        log(channel.getIdLong(), new Entry(null, embed));
+    }
+
+    private static void log(long channelId, Entry entry) {
+        CHANNELS.computeIfAbsent(channelId, ChannelLog::new).add(entry);
+    }
+
+    private static final class ChannelLog {
+        private final long channelId;
+        private final Queue<Entry> entries = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicInteger droppedEntries = new AtomicInteger();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        ChannelLog(long channelId) {
+            this.channelId = channelId;
+        }
+
+        void add(Entry entry) {
+            if(size.incrementAndGet() > MAX_BACKLOG) {
+                size.decrementAndGet();
+                droppedEntries.incrementAndGet();
+                dropped.inc();
+            } else {
+                entries.add(entry);
+            }
+
+            schedule();
+        }
+
+        private void schedule() {
+            if(scheduled.compareAndSet(false, true))
+                MantaroExecutors.timer().schedule(this::flush, WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+        }
+
+        private void flush() {
+            List<Object> messages = new ArrayList<>();
+            List<Integer> counts = new ArrayList<>();
+            StringBuilder text = new StringBuilder();
+            int inText = 0;
+            long now = System.nanoTime();
+
+            int lost = droppedEntries.getAndSet(0);
+            if(lost > 0) {
+                text.append("⚠ ").append(lost).append(" log entries were skipped, too many happened at once.");
+                inText++;
+            }
+
+            Entry entry;
+            while((entry = entries.poll()) != null) {
+                size.decrementAndGet();
+                batchDelay.observe((now - entry.created) / 1e9);
+                if(entry.embed != null) {
+                    //Send the lines before it first, so the channel shows things in the order they happened.
+                    if(text.length() > 0) {
+                        messages.add(text.toString());
+                        counts.add(inText);
+                        text.setLength(0);
+                        inText = 0;
+                    }
+
+                    messages.add(entry.embed);
+                    counts.add(1);
+                    continue;
+                }
+
+                String line = fit(entry.line);
+                if(text.length() > 0 && text.length() + 1 + line.length() > Message.MAX_CONTENT_LENGTH) {
+                    messages.add(text.toString());
+                    counts.add(inText);
+                    text.setLength(0);
+                    inText = 0;
+                }
+
+                if(text.length() > 0)
+                    text.append('\n');
+                text.append(line);
+                inText++;
+            }
+
+            if(text.length() > 0) {
+                messages.add(text.toString());
+                counts.add(inText);
+            }
+
+            TextChannel channel = MantaroBot.getInstance().getTextChannelById(channelId);
+            if(channel == null || messages.isEmpty() || !channel.canTalk()) {
+                done();
+                return;
+            }
+
+            send(channel, messages, counts, 0);
+        }
+
+        //Cuts entries that wouldn't fit on a message, closing the code block they were cut on (edit and delete logs are on one).
+        private static String fit(String line) {
+            if(line.length() <= Message.MAX_CONTENT_LENGTH)
+                return line;
+
+            String cut = line.substring(0, Message.MAX_CONTENT_LENGTH - 6) + "...";
+            return (cut.split("```", -1).length % 2 == 0) ? cut + "```" : cut;
+        }
+
+        //Sends the messages one after another, so there's only one request on the channel at a time.
+        private void send(TextChannel channel, List<Object> messages, List<Integer> counts, int index) {
+            if(index >= messages.size()) {
+                done();
+                return;
+            }
+
+            Object message = messages.get(index);
+            batchSize.observe(counts.get(index));
+            //Embeds are mod actions (see ModLog), the rest are plain logs.
+            boolean embed = message instanceof MessageEmbed;
+            OutboundQueue.send(channel, embed ? Priority.MODERATION : Priority.LOG, null,
+                    embed ? new MessageBuilder().setEmbed((MessageEmbed) message).build() : new MessageBuilder().append((String) message).build(),
+                    success -> send(channel, messages, counts, index + 1),
+                    failure -> send(channel, messages, counts, index + 1)
+            );
+        }
+
+        private void done() {
+            scheduled.set(false);
+            if(!entries.isEmpty() || droppedEntries.get() > 0) {
+                schedule();
+            } else {
+                //Entries added to it after this still get sent, it just won't be on the map anymore.
+                CHANNELS.remove(channelId, this);
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final String line;
+        private final MessageEmbed embed;
+        private final long created = System.nanoTime();
+
+        Entry(String line, MessageEmbed embed) {
+            this.line = line;
+            this.embed = embed;
+        }
+    }
+}
@@ -24,6 +24,7 @@ import net.dv8tion.jda.core.entities.User;
 import net.kodehawa.mantarobot.commands.game.core.GameLobby;
 import net.kodehawa.mantarobot.commands.interaction.polls.Poll;
 import net.kodehawa.mantarobot.core.listeners.operations.InteractiveOperations;
+import net.kodehawa.mantarobot.data.GuildSettings;
 import net.kodehawa.mantarobot.data.MantaroData;
 import net.kodehawa.mantarobot.db.entities.DBGuild;
 import net.kodehawa.mantarobot.db.entities.helpers.GuildData;
@@ -107,6 +108,7 @@ public class GeneralOptions extends OptionHandler {
             guildData.setLinkProtection(!toggler);
             event.getChannel().sendMessageFormat(lang.get("options.linkprotection_toggle.success"), EmoteReference.CORRECT, !toggler).queue();
             dbGuild.save();
+            GuildSettings.update(event.getGuild().getId(), guildData);
         });
 
         registerOption("linkprotection:channel:allow", "Link-protection channel allow",
@@ -126,6 +128,7 @@ public class GeneralOptions extends OptionHandler {
             Consumer<TextChannel> consumer = tc -> {
                 guildData.getLinkProtectionAllowedChannels().add(tc.getId());
                 dbGuild.save();
+                GuildSettings.update(event.getGuild().getId(), guildData);
                 event.getChannel().sendMessageFormat(lang.get("options.linkprotection_channel_allow.success"), EmoteReference.OK, tc.getAsMention()).queue();
             };
 
@@ -153,6 +156,7 @@ public class GeneralOptions extends OptionHandler {
             Consumer<TextChannel> consumer = tc -> {
                 guildData.getLinkProtectionAllowedChannels().remove(tc.getId());
                 dbGuild.save();
+                GuildSettings.update(event.getGuild().getId(), guildData);
                 event.getChannel().sendMessageFormat(lang.get("options.linkprotection_channel_disallow.success"), EmoteReference.OK, tc.getAsMention()).queue();
             };
 
@@ -181,6 +185,7 @@ public class GeneralOptions extends OptionHandler {
             User toWhiteList = event.getMessage().getMentionedUsers().get(0);
             guildData.getLinkProtectionAllowedUsers().add(toWhiteList.getId());
             dbGuild.save();
+            GuildSettings.update(event.getGuild().getId(), guildData);
             event.getChannel().sendMessageFormat(lang.get("options.linkprotection_user_allow.success"),
                     EmoteReference.CORRECT, toWhiteList.getName(), toWhiteList.getDiscriminator()
             ).queue();
@@ -210,6 +215,7 @@ public class GeneralOptions extends OptionHandler {
 
             guildData.getLinkProtectionAllowedUsers().remove(toBlackList.getId());
             dbGuild.save();
+            GuildSettings.update(event.getGuild().getId(), guildData);
             event.getChannel().sendMessageFormat(lang.get("options.linkprotection_user_disallow.success"),
                     EmoteReference.CORRECT, toBlackList.getName(), toBlackList.getDiscriminator()
             ).queue();
@@ -25,6 +25,7 @@ import net.kodehawa.mantarobot.commands.OptsCmd;
 import net.kodehawa.mantarobot.core.listeners.operations.InteractiveOperations;
 import net.kodehawa.mantarobot.core.listeners.operations.core.Operation;
 import net.kodehawa.mantarobot.core.modules.commands.SimpleCommand;
+import net.kodehawa.mantarobot.data.GuildSettings;
 import net.kodehawa.mantarobot.data.I18n;
 import net.kodehawa.mantarobot.data.MantaroData;
 import net.kodehawa.mantarobot.db.entities.DBGuild;
@@ -78,6 +79,7 @@ public class GuildOptions extends OptionHandler {
 
             guildData.setLang(language);
             dbGuild.save();
+            GuildSettings.update(event.getGuild().getId(), guildData);
             event.getChannel().sendMessageFormat("%sSuccessfully set the language of this server to `%s`", EmoteReference.CORRECT, language).queue();
         }));
         //endregion
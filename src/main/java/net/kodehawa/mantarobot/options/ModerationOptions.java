@@ -24,6 +24,7 @@ import net.dv8tion.jda.core.entities.User;
 import net.dv8tion.jda.core.events.message.guild.GuildMessageReceivedEvent;
 import net.kodehawa.mantarobot.core.modules.commands.base.CommandPermission;
 import net.kodehawa.mantarobot.core.modules.commands.i18n.I18nContext;
+import net.kodehawa.mantarobot.data.GuildSettings;
 import net.kodehawa.mantarobot.data.MantaroData;
 import net.kodehawa.mantarobot.db.entities.DBGuild;
 import net.kodehawa.mantarobot.db.entities.helpers.GuildData;
@@ -122,6 +123,7 @@ public class ModerationOptions extends OptionHandler {
                     Consumer<TextChannel> consumer = textChannel -> {
                         guildData.setGuildLogChannel(textChannel.getId());
                         dbGuild.saveAsync();
+                        GuildSettings.update(event.getGuild().getId(), guildData);
                         event.getChannel().sendMessage(String.format(lang.get("options.logs_enable.success"),
                                 EmoteReference.MEGA, textChannel.getName(), textChannel.getId())
                         ).queue();
@@ -199,6 +201,7 @@ public class ModerationOptions extends OptionHandler {
             GuildData guildData = dbGuild.getData();
             guildData.setGuildLogChannel(null);
             dbGuild.saveAsync();
+            GuildSettings.update(event.getGuild().getId(), guildData);
             event.getChannel().sendMessageFormat(lang.get("options.log_disable.success"), EmoteReference.MEGA).queue();
         });
     }
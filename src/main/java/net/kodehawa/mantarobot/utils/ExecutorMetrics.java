@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2016-2018 David Alejandro Rubio Escares / Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro.  If not, see http://www.gnu.org/licenses/
+ */
+
+package net.kodehawa.mantarobot.utils;
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Histogram;
+
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Saturation metrics shared by {@link InstrumentedThreadPoolExecutor} and {@link InstrumentedScheduledThreadPoolExecutor}.
+ * The point-in-time gauges (including the queue size) are exported by {@link ThreadPoolCollector}.
+ */
+final class ExecutorMetrics {
+    static final Histogram queueWait = Histogram.build()
+            .name("executor_queue_wait_seconds").help("Time tasks spent queued before starting to run (for scheduled tasks, time past their trigger time)")
+            .labelNames("executor")
+            .buckets(.0001, .0005, .001, .005, .01, .05, .1, .5, 1, 5, 10, 30)
+            .register();
+    static final Histogram runTime = Histogram.build()
+            .name("executor_run_seconds").help("Time tasks spent running")
+            .labelNames("executor")
+            .buckets(.001, .005, .01, .05, .1, .25, .5, 1, 2.5, 5, 10, 30, 60)
+            .register();
+    static final Counter rejected = Counter.build()
+            .name("executor_rejected_tasks").help("Tasks rejected by the executor")
+            .labelNames("executor")
+            .register();
+
+    private ExecutorMetrics() {}
+
+    /**
+     * Records a task that just finished running.
+     *
+     * @param name       The name of the executor.
+     * @param waitNanos  How long the task waited before starting, in nanoseconds.
+     * @param startNanos When the task started running, as given by {@link System#nanoTime()}.
+     */
+    static void record(String name, long waitNanos, long startNanos) {
+        queueWait.labels(name).observe(Math.max(0, waitNanos) / 1e9);
+        runTime.labels(name).observe((System.nanoTime() - startNanos) / 1e9);
+    }
+
+    /**
+     * Wraps a handler so rejections get counted before it handles them.
+     */
+    static RejectedExecutionHandler counting(String name, RejectedExecutionHandler handler) {
+        return (r, executor) -> {
+            rejected.labels(name).inc();
+            handler.rejectedExecution(r, executor);
+        };
+    }
+
+    static RejectedExecutionHandler counting(String name) {
+        return counting(name, new ThreadPoolExecutor.AbortPolicy());
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2016-2018 David Alejandro Rubio Escares / Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro.  If not, see http://www.gnu.org/licenses/
+ */
+
+package net.kodehawa.mantarobot.utils;
+
+import java.util.concurrent.*;
+
+/**
+ * A {@link ScheduledThreadPoolExecutor} that records how late tasks start compared to their trigger time, how long they run and how many get rejected.
+ * Every task (including plain execute/submit calls, which are scheduled with no delay) goes through {@link #decorateTask(Runnable, RunnableScheduledFuture)}.
+ * Periodic tasks are re-queued through the decorated task, so every run gets recorded.
+ */
+public class InstrumentedScheduledThreadPoolExecutor extends ScheduledThreadPoolExecutor {
+    private final String name;
+
+    public InstrumentedScheduledThreadPoolExecutor(String name, int corePoolSize, ThreadFactory threadFactory) {
+        super(corePoolSize, threadFactory, ExecutorMetrics.counting(name));
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    protected <V> RunnableScheduledFuture<V> decorateTask(Runnable runnable, RunnableScheduledFuture<V> task) {
+        return new TimedTask<>(task);
+    }
+
+    @Override
+    protected <V> RunnableScheduledFuture<V> decorateTask(Callable<V> callable, RunnableScheduledFuture<V> task) {
+        return new TimedTask<>(task);
+    }
+
+    private final class TimedTask<V> implements RunnableScheduledFuture<V> {
+        private final RunnableScheduledFuture<V> task;
+
+        TimedTask(RunnableScheduledFuture<V> task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            //A negative delay is how much time passed since the task should have run.
+            long late = -task.getDelay(TimeUnit.NANOSECONDS);
+            try {
+                task.run();
+            } finally {
+                ExecutorMetrics.record(name, late, start);
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = task.cancel(mayInterruptIfRunning);
+            //The inner task would try to remove itself, but the queue holds this wrapper.
+            if(cancelled && getRemoveOnCancelPolicy())
+                remove(this);
+
+            return cancelled;
+        }
+
+        @Override
+        public boolean isPeriodic() {
+            return task.isPeriodic();
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return task.getDelay(unit);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            if(other == this)
+                return 0;
+
+            return task.compareTo(other instanceof TimedTask ? ((TimedTask<?>) other).task : other);
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return task.isCancelled();
+        }
+
+        @Override
+        public boolean isDone() {
+            return task.isDone();
+        }
+
+        @Override
+        public V get() throws InterruptedException, ExecutionException {
+            return task.get();
+        }
+
+        @Override
+        public V get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            return task.get(timeout, unit);
+        }
+
+        @Override
+        public String toString() {
+            return task.toString();
+        }
+    }
+}
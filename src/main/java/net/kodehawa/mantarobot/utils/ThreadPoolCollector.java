@@ -39,7 +39,7 @@ public class ThreadPoolCollector extends Collector {
 
     @Override
     public List<MetricFamilySamples> collect() {
-        List<MetricFamilySamples> list = new ArrayList<>(8);
+        List<MetricFamilySamples> list = new ArrayList<>(9);
         GaugeMetricFamily activeCount = new GaugeMetricFamily(
                 "executor_active_count",
                 "Approximate number of threads that are actively executing tasks.",
@@ -88,6 +88,12 @@ public class ThreadPoolCollector extends Collector {
                 Collections.singletonList("executor")
         );
         list.add(taskCount);
+        GaugeMetricFamily queueSize = new GaugeMetricFamily(
+                "executor_queue_size",
+                "Current number of tasks waiting on the queue.",
+                Collections.singletonList("executor")
+        );
+        list.add(queueSize);
         for(Map.Entry<String, ThreadPoolExecutor> entry : executors.entrySet()) {
             List<String> name = Collections.singletonList(entry.getKey());
             ThreadPoolExecutor executor = entry.getValue();
@@ -99,6 +105,7 @@ public class ThreadPoolCollector extends Collector {
             maximumPoolSize.addMetric(name, executor.getMaximumPoolSize());
             poolSize.addMetric(name, executor.getPoolSize());
             taskCount.addMetric(name, executor.getTaskCount());
+            queueSize.addMetric(name, executor.getQueue().size());
         }
         return list;
     }
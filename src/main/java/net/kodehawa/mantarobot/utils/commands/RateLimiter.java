@@ -19,11 +19,10 @@ package net.kodehawa.mantarobot.utils.commands;
 import lombok.Getter;
 import net.dv8tion.jda.core.entities.Member;
 import net.dv8tion.jda.core.entities.User;
+import net.kodehawa.mantarobot.core.MantaroExecutors;
 import net.kodehawa.mantarobot.data.MantaroData;
-import net.kodehawa.mantarobot.utils.Prometheus;
 
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -41,17 +40,13 @@ import java.util.concurrent.atomic.AtomicInteger;
  * @since 01-06-2017
  */
 public class RateLimiter {
-    private static final ScheduledExecutorService ses = Executors.newScheduledThreadPool(1);
+    private static final ScheduledExecutorService ses = MantaroExecutors.timer();
     private final long max;
     private final long timeout;
     @Getter
     private final ConcurrentHashMap<String, Pair<AtomicInteger, Long>> usersRateLimited = new ConcurrentHashMap<>();
     private boolean isPremiumAware = false;
 
-    static {
-        Prometheus.THREAD_POOL_COLLECTOR.add("rate-limiter", ses);
-    }
-
     /**
      * Default constructor normally used in Currency commands to ratelimit all people.
      *
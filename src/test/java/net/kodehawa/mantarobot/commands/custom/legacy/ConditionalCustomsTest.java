@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2016-2018 David Alejandro Rubio Escares / Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro.  If not, see http://www.gnu.org/licenses/
+ */
+
+package net.kodehawa.mantarobot.commands.custom.legacy;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static net.kodehawa.mantarobot.commands.custom.legacy.ConditionalCustoms.*;
+
+public class ConditionalCustomsTest {
+    private static final Map<String, String> VALUES = new HashMap<>();
+    private static final DynamicModifiers MODIFIERS = new DynamicModifiers();
+
+    static {
+        LegacyResolvers.putEventValues(VALUES);
+        VALUES.forEach(MODIFIERS::set);
+    }
+
+    @Test
+    public void flatCalls() {
+        assertSameAsLegacy(
+                "plain text",
+                "@if{a;equals;a;yes;no}",
+                "@if{a;equals;b;yes}",
+                "@ne{;;b}",
+                "@nes{ ; ;c}",
+                "@ne{}",
+                "@url{a b;c}",
+                "@jsonescape{\"q\"}",
+                "@ne{;a} and @ne{;b}",
+                "$(event.user.name) said @if{$(event.user.name);equals;Kode;hi;bye} $(unknown)"
+        );
+    }
+
+    @Test
+    public void badCalls() {
+        assertSameAsLegacy(
+                "@if{a;nope;b;yes}",
+                "@if{a;equals}",
+                "@foo{bar}",
+                "mail@host{x} lol",
+                "{} @{x} @IF{x}"
+        );
+    }
+
+    //Unclosed calls are left as text, and calls can't span lines.
+    @Test
+    public void unclosedCalls() {
+        assertSameAsLegacy(
+                "@if{a;equals;a;yes",
+                "@a{@a{@a{ unclosed",
+                "@ne{a;@ne{b",
+                "@ne{@ne{x}",
+                "@ne{@ne{@ne{x",
+                "@if{a\n;equals;a;y}",
+                "@ne{x\n@ne{;y}"
+        );
+    }
+
+    //The old regex ended a call on the first '}', so nesting only worked by accident. These are the outputs nesting is meant to have.
+    @Test
+    public void nestedCalls() {
+        Assert.assertEquals("z tail", resolve("@if{a;equals;a;@ne{;z};no} tail", MODIFIERS));
+        Assert.assertEquals("a+b", resolve("@url{@ne{;a b}}", MODIFIERS));
+        Assert.assertEquals("deep", resolve("@nes{@if{a;equals;b;x}; ;@ne{;deep}}", MODIFIERS));
+        //Three calls closed out of four opened: the outer one stays text.
+        Assert.assertEquals("@ne{;x", resolve("@ne{;@ne{;@ne{;@ne{;x}}}", MODIFIERS));
+    }
+
+    @Test
+    public void callsPastMaxDepthStayText() {
+        int levels = MAX_DEPTH + 2;
+        String response = repeat("@ne{", levels) + "x" + repeat("}", levels);
+        Assert.assertEquals(repeat("@ne{", 2) + "x" + repeat("}", 2), resolve(response, MODIFIERS));
+    }
+
+    @Test
+    public void resultsAreCapped() {
+        Assert.assertEquals(MAX_LENGTH, resolve("@ne{" + repeat("a", MAX_LENGTH * 2) + "}", MODIFIERS).length());
+    }
+
+    //Past the node limit, the rest of the response is kept as text.
+    @Test
+    public void nodesAreCapped() {
+        Assert.assertEquals(repeat("Kode", MAX_NODES) + repeat("$(event.user.name)", 500),
+                resolve(repeat("$(event.user.name)", MAX_NODES + 500), MODIFIERS));
+        Assert.assertEquals(repeat("a", MAX_NODES) + repeat("@ne{;a}", 200), resolve(repeat("@ne{;a}", MAX_NODES + 200), MODIFIERS));
+    }
+
+    //Every '@' of these starts a call that's never closed. Without remembering them, parsing takes ages.
+    @Test(timeout = 5000)
+    public void longUnclosedResponsesStayText() {
+        String unclosed = repeat("@a{", 2000);
+        Assert.assertEquals(unclosed, resolve(unclosed, MODIFIERS));
+
+        unclosed = repeat("@if{a;equals;a;", 300);
+        Assert.assertEquals(unclosed, resolve(unclosed, MODIFIERS));
+    }
+
+    private static void assertSameAsLegacy(String... responses) {
+        for(String response : responses) {
+            String legacy = LegacyResolvers.resolveFunctions(LegacyResolvers.resolveModifiers(VALUES, response), 0);
+            Assert.assertEquals(response, legacy, resolve(response, MODIFIERS));
+        }
+    }
+
+    private static String repeat(String s, int times) {
+        StringBuilder builder = new StringBuilder();
+        for(int i = 0; i < times; i++) {
+            builder.append(s);
+        }
+
+        return builder.toString();
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2016-2018 David Alejandro Rubio Escares / Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro.  If not, see http://www.gnu.org/licenses/
+ */
+
+package net.kodehawa.mantarobot.commands.custom.legacy;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+//Compiled templates should render exactly what the old regex + String.replace resolver did.
+public class DynamicModifiersTest {
+    private static final String[] TEMPLATES = {
+            "Welcome $(event.user.mention) to **$(event.guild.name)**! We're now $(event.guild.totalusers) people.",
+            "$(event.author.name) says: $(event.message) ($(event.message.raw)) in $(event.channel.mention) $(unknown.key)",
+            "Nothing to replace here, just some $ and ( characters.",
+            "$(event.me.name) $(event.me.name) $(event.me.name) $(event.author.id) $(event.timestamp)",
+            "$(event.user.name)$(event.user.id)$(event.user.name)",
+            "$(event.user.name",
+            "$() $( ) $(event.user name) $(event.user-name)",
+            "$$(event.user.name)) $($(event.user.name))",
+            "$(event.path) and $(event.escaped)",
+            "$(event)",
+            ""
+    };
+
+    @Test
+    public void resolvesLikeLegacy() {
+        Map<String, String> values = values();
+        DynamicModifiers modifiers = new DynamicModifiers();
+        values.forEach(modifiers::set);
+
+        for(String template : TEMPLATES) {
+            Assert.assertEquals(template, LegacyResolvers.resolveModifiers(values, template), modifiers.resolve(template));
+            //Cached templates render the same.
+            Assert.assertEquals(template, LegacyResolvers.resolveModifiers(values, template), modifiers.resolve(template));
+        }
+    }
+
+    @Test
+    public void onlyResolvesUsedVariables() {
+        DynamicModifiers modifiers = new DynamicModifiers();
+        int[] calls = new int[1];
+        modifiers.set("used", () -> {
+            calls[0]++;
+            return "yes";
+        });
+        modifiers.set("unused", () -> {
+            throw new AssertionError("Resolved a variable the template doesn't use");
+        });
+
+        Assert.assertEquals("yes yes", modifiers.resolve("$(used) $(used)"));
+        Assert.assertEquals(1, calls[0]);
+    }
+
+    private static Map<String, String> values() {
+        Map<String, String> values = new LinkedHashMap<>();
+        LegacyResolvers.putEventValues(values);
+        values.put("event.path", "C:\\Users\\kode");
+        values.put("event.escaped", "a\\\\b \\n");
+        return values;
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2016-2018 David Alejandro Rubio Escares / Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro.  If not, see http://www.gnu.org/licenses/
+ */
+
+package net.kodehawa.mantarobot.commands.custom.legacy;
+
+import com.google.gson.JsonPrimitive;
+import net.kodehawa.mantarobot.utils.URLEncoding;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+//The resolvers as they were before templates were compiled, to check (and time) the new ones against.
+final class LegacyResolvers {
+    private static final Pattern GETTER_MODIFIER = Pattern.compile("\\$\\([A-Za-z0-9.]+?\\)");
+    private static final Pattern FUNCTION = Pattern.compile("@[a-z]+\\{.*?}"),
+            FUNCNAME = Pattern.compile("\\{"),
+            SPLITTER = Pattern.compile(";", Pattern.LITERAL);
+    //Only the comparators the tests use.
+    private static final Map<String, Function<String[], String>> functions = new HashMap<>();
+
+    static {
+        Map<String, BiPredicate<String, String>> comparators = new HashMap<>();
+        comparators.put("equals", String::equals);
+
+        functions.put("if", args -> {
+            if(args.length < 4) return "`if requires at least 6 parameters`";
+            String input1 = args[0], compare = args[1], input2 = args[2], outputTrue = args[3];
+            BiPredicate<String, String> comparator = comparators.get(compare);
+            if(comparator == null) return "`'The " + compare + "' comparator doesn't exist`";
+            if(comparator.test(input1, input2)) return outputTrue;
+            if(args.length >= 5) return args[4];
+            return "";
+        });
+
+        functions.put("ne", args -> {
+            for(String arg : args) if(!arg.isEmpty()) return arg;
+            return "";
+        });
+
+        functions.put("nes", args -> {
+            for(String arg : args) if(!arg.trim().isEmpty()) return arg;
+            return "";
+        });
+
+        functions.put("url", args -> URLEncoding.encode(String.join(";", args)));
+
+        functions.put("jsonescape", args -> {
+            String s = new JsonPrimitive(String.join(";", args)).toString();
+            return s.substring(1, s.length() - 1);
+        });
+    }
+
+    private LegacyResolvers() {}
+
+    //DynamicModifiers#resolve
+    static String resolveModifiers(Map<String, String> values, String string) {
+        if(!string.contains("$(")) return string;
+
+        Set<String> dejaVu = new HashSet<>();
+        Matcher matcher = GETTER_MODIFIER.matcher(string);
+        while(matcher.find()) {
+            String key = matcher.group();
+            if(dejaVu.contains(key)) continue;
+            String mapKey = key.substring(2, key.length() - 1);
+            string = string.replace(key, values.getOrDefault(mapKey, mapKey).replaceAll("[^\\\\]\\\\[^\\\\]", "\\\\"));
+            if(!string.contains("$(")) break;
+            dejaVu.add(key);
+        }
+
+        return string;
+    }
+
+    //ConditionalCustoms#resolve. Variables were replaced as text (see resolveModifiers) before it ran.
+    static String resolveFunctions(String string, int depth) {
+        if(!string.contains("@") || !string.contains("{") || !string.contains("}")) return string;
+        if(depth > 4) return string;
+
+        Matcher matcher = FUNCTION.matcher(string);
+        StringBuffer result = new StringBuffer();
+        while(matcher.find()) {
+            String s = matcher.group();
+            s = s.substring(1, s.length() - 1);
+
+            if(FUNCTION.matcher(s).find())
+                s = resolveFunctions(s, depth + 1);
+
+            String[] parts = FUNCNAME.split(s, 2);
+            String name = parts[0];
+            String replacement;
+            if(!functions.containsKey(name))
+                replacement = "`" + s + " isn't a function`";
+            else if(parts.length == 1)
+                replacement = functions.get(name).apply(new String[0]);
+            else
+                replacement = functions.get(name).apply(SPLITTER.split(parts[1], -1));
+
+            matcher.appendReplacement(result, Matcher.quoteReplacement(replacement));
+        }
+
+        return matcher.appendTail(result).toString();
+    }
+
+    //Roughly what mapEvent puts on the map for a message event.
+    static void putEventValues(Map<String, String> values) {
+        values.put("event", "<@1234>@<#5678>");
+        values.put("event.timestamp", "Mon Jan 01 00:00:00 UTC 2018");
+        for(String member : new String[]{"event.user", "event.me", "event.author", "event.guild.owner"}) {
+            values.put(member, "<@1234>");
+            values.put(member + ".username", "Kodehawa");
+            values.put(member + ".discriminator", "0001");
+            values.put(member + ".name", "Kode");
+            values.put(member + ".game", "None");
+            values.put(member + ".status", "Online");
+            values.put(member + ".mention", "<@1234>");
+            values.put(member + ".avatar", "https://cdn.discordapp.com/avatars/1234/abcd.png");
+            values.put(member + ".id", "1234");
+        }
+        values.put("event.channel", "<#5678>");
+        values.put("event.channel.topic", "Some topic");
+        values.put("event.channel.name", "general");
+        values.put("event.channel.id", "5678");
+        values.put("event.channel.mention", "<#5678>");
+        values.put("event.guild", "Mantaro Hub");
+        values.put("event.guild.name", "Mantaro Hub");
+        values.put("event.guild.region", "US East");
+        values.put("event.guild.totalusers", "4000");
+        values.put("event.message", "hello there");
+        values.put("event.message.raw", "hello there");
+        values.put("event.message.textual", "hello there");
+        values.put("event.message.stripped", "hello there");
+    }
+}
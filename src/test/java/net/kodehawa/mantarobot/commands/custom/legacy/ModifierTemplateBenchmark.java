@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2016-2018 David Alejandro Rubio Escares / Kodehawa
+ *
+ * Mantaro is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * Mantaro is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Mantaro.  If not, see http://www.gnu.org/licenses/
+ */
+
+package net.kodehawa.mantarobot.commands.custom.legacy;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Times compiled templates against the old regex + String.replace resolver, on a few join/leave and custom command style templates.
+ * <p>
+ * Not a unit test (it has no {@code @Test}, so {@code gradle test} skips it): run its main method by hand, from the IDE or with the test
+ * classpath, when changing {@link ModifierTemplate}.
+ */
+public class ModifierTemplateBenchmark {
+    private static final int WARMUP_ITERATIONS = 20_000;
+    private static final int ITERATIONS = 100_000;
+    private static final int ROUNDS = 5;
+
+    private static final String[] TEMPLATES = {
+            "Welcome $(event.user.mention) to **$(event.guild.name)**! We're now $(event.guild.totalusers) people.",
+            "$(event.author.name) says: $(event.message) ($(event.message.raw)) in $(event.channel.mention) $(unknown.key)",
+            "Nothing to replace here, just some $ and ( characters.",
+            "$(event.me.name) $(event.me.name) $(event.me.name) $(event.author.id) $(event.timestamp)"
+    };
+
+    //Keeps the JIT from dropping the work.
+    private static int sink;
+
+    public static void main(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        LegacyResolvers.putEventValues(values);
+
+        for(String template : TEMPLATES) {
+            if(!LegacyResolvers.resolveModifiers(values, template).equals(ModifierTemplate.compile(template).render(values::get)))
+                throw new IllegalStateException("Compiled template renders differently: " + template);
+        }
+
+        legacy(values, WARMUP_ITERATIONS);
+        compiled(values, WARMUP_ITERATIONS);
+
+        for(int round = 1; round <= ROUNDS; round++) {
+            long legacy = legacy(values, ITERATIONS);
+            long compiled = compiled(values, ITERATIONS);
+            System.out.printf("Round %d: legacy resolve %.1f ns/op, compiled template %.1f ns/op%n", round,
+                    legacy / (double) (ITERATIONS * TEMPLATES.length), compiled / (double) (ITERATIONS * TEMPLATES.length));
+        }
+    }
+
+    private static long legacy(Map<String, String> values, int iterations) {
+        long start = System.nanoTime();
+        for(int i = 0; i < iterations; i++) {
+            for(String template : TEMPLATES) {
+                sink += LegacyResolvers.resolveModifiers(values, template).length();
+            }
+        }
+
+        return System.nanoTime() - start;
+    }
+
+    //Goes through the template cache like DynamicModifiers#resolve does.
+    private static long compiled(Map<String, String> values, int iterations) {
+        long start = System.nanoTime();
+        for(int i = 0; i < iterations; i++) {
+            for(String template : TEMPLATES) {
+                sink += ModifierTemplate.compile(template).render(values::get).length();
+            }
+        }
+
+        return System.nanoTime() - start;
+    }
+}